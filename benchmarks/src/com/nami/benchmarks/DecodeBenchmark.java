@@ -0,0 +1,51 @@
+package com.nami.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+//ImageIO.read of an encoded image held in memory, so disk speed does not show up in the numbers
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DecodeBenchmark {
+
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+
+    @Param({Images.INT_RGB, Images.BYTE_BGR, Images.PALETTE})
+    public String type;
+
+    @Param({"png", "jpg"})
+    public String format;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        ImageIO.setUseCache(false);
+        BufferedImage img = Images.create(size, type);
+        //JPEG has no palette, the writer would fail on indexed images
+        if (format.equals("jpg") && type.equals(Images.PALETTE)) {
+            BufferedImage rgb = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+            rgb.createGraphics().drawImage(img, 0, 0, null);
+            img = rgb;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(img, format, out))
+            throw new IOException("No writer for " + format);
+        encoded = out.toByteArray();
+    }
+
+    @Benchmark
+    public BufferedImage read() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(encoded));
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.nami.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Random;
+
+//Deterministic test images, so every run measures the same pixels
+final class Images {
+
+    //Pixel types of the benchmark matrix
+    static final String INT_RGB = "INT_RGB", BYTE_BGR = "3BYTE_BGR", PALETTE = "PALETTE";
+
+    private static final long SEED = 42;
+
+    private Images() {
+    }
+
+    //Size given as "<width>x<height>"
+    static BufferedImage create(String size, String type) {
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+
+        BufferedImage img;
+        switch (type) {
+            case INT_RGB:
+                img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                break;
+            case BYTE_BGR:
+                img = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+                break;
+            case PALETTE:
+                img = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, palette());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown pixel type: " + type);
+        }
+
+        //Gradients with noise, so neither the encoders nor the mapping see uniform areas
+        Random random = new Random(SEED);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = x * 255 / width, g = y * 255 / height, b = (x + y) * 255 / (width + height);
+                int noise = random.nextInt(32) - 16;
+                row[x] = clamp(r + noise) << 16 | clamp(g + noise) << 8 | clamp(b + noise);
+            }
+            img.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return img;
+    }
+
+    private static IndexColorModel palette() {
+        byte[] r = new byte[256], g = new byte[256], b = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            r[i] = (byte) ((i >> 5) * 255 / 7);
+            g[i] = (byte) (((i >> 2) & 7) * 255 / 7);
+            b[i] = (byte) ((i & 3) * 255 / 3);
+        }
+        return new IndexColorModel(8, 256, r, g, b);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.nami.benchmarks;
+
+import com.nami.CharGrid;
+import com.nami.Dithering;
+import com.nami.ImageToChars;
+import com.nami.Settings;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+//Luminance and charset lookup of an already scaled image
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MapBenchmark {
+
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+
+    @Param({Images.INT_RGB, Images.BYTE_BGR, Images.PALETTE})
+    public String type;
+
+    @Param({"symbols", "all"})
+    public String charset;
+
+    @Param({"NONE", "ORDERED", "FLOYD_STEINBERG"})
+    public Dithering dithering;
+
+    private ForkJoinPool pool;
+    private ImageToChars serial, parallel;
+    private BufferedImage img;
+
+    @Setup
+    public void setup() {
+        Settings settings = new Settings().setCharsetName(charset).setDithering(dithering);
+        pool = new ForkJoinPool();
+        serial = new ImageToChars(settings);
+        parallel = new ImageToChars(settings, pool);
+        img = Images.create(size, type);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public CharGrid map() {
+        return serial.map(img);
+    }
+
+    @Benchmark
+    public CharGrid mapParallel() {
+        return parallel.map(img);
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.nami.benchmarks;
+
+import com.nami.ImageToChars;
+import com.nami.Scaling;
+import com.nami.Settings;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+//Bicubic aspect correction, serial and split into row bands
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScaleBenchmark {
+
+    @Param({"640x480", "1920x1080", "4000x3000"})
+    public String size;
+
+    @Param({Images.INT_RGB, Images.BYTE_BGR, Images.PALETTE})
+    public String type;
+
+    @Param({"WIDTH", "HEIGHT"})
+    public String scaling;
+
+    private ForkJoinPool pool;
+    private ImageToChars serial, parallel;
+    private BufferedImage img;
+
+    @Setup
+    public void setup() {
+        Settings settings = new Settings().setScaling(Scaling.valueOf(scaling));
+        pool = new ForkJoinPool();
+        serial = new ImageToChars(settings);
+        parallel = new ImageToChars(settings, pool);
+        img = Images.create(size, type);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public BufferedImage scale() {
+        return serial.scale(img);
+    }
+
+    @Benchmark
+    public BufferedImage scaleParallel() {
+        return parallel.scale(img);
+    }
+
+}
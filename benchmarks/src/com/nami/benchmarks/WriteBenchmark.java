@@ -0,0 +1,92 @@
+package com.nami.benchmarks;
+
+import com.nami.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+//Writing a finished char grid to a text file through the streaming and the mapped sink
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WriteBenchmark {
+
+    abstract static class Output {
+        CharGrid grid;
+        Charset outputCharset;
+        File file;
+
+        void open(String size, String charset, String encoding) throws IOException {
+            grid = new ImageToChars(new Settings().setCharsetName(charset)).map(Images.create(size, Images.INT_RGB));
+            outputCharset = Charset.forName(encoding);
+            file = File.createTempFile("image-to-chars", ".txt");
+            file.deleteOnExit();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Streamed extends Output {
+
+        @Param({"640x480", "1920x1080", "4000x3000"})
+        public String size;
+
+        @Param({"symbols", "all"})
+        public String charset;
+
+        @Param({"UTF-8", "UTF-16"})
+        public String encoding;
+
+        @Setup
+        public void setup() throws IOException {
+            open(size, charset, encoding);
+        }
+
+        @TearDown
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    //Only single byte encodings of the charsets can be mapped, so only those are measured
+    @State(Scope.Benchmark)
+    public static class Mappable extends Output {
+
+        @Param({"640x480", "1920x1080", "4000x3000"})
+        public String size;
+
+        @Param({"symbols", "all"})
+        public String charset;
+
+        @Param({"UTF-8", "ISO-8859-1"})
+        public String encoding;
+
+        @Setup
+        public void setup() throws IOException {
+            open(size, charset, encoding);
+            if (!MappedTextSink.supports(Charsets.get(charset), outputCharset))
+                throw new IllegalStateException(String.format("%s in %s cannot be mapped", charset, encoding));
+        }
+
+        @TearDown
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public void channel(Streamed output) throws IOException {
+        try (TextSink sink = new ChannelTextSink(output.file, output.outputCharset)) {
+            output.grid.writeTo(sink);
+        }
+    }
+
+    @Benchmark
+    public void mapped(Mappable output) throws IOException {
+        try (TextSink sink = new MappedTextSink(output.file, output.outputCharset, output.grid.getWidth(), output.grid.getHeight())) {
+            output.grid.writeTo(sink);
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.nami;
+
+//Nearest color of the xterm 256-color palette, looked up in a table over 15-bit RGB
+public final class Ansi256 {
+
+    private static final int[] CUBE_LEVELS = {0, 95, 135, 175, 215, 255};
+    private static final byte[] TABLE = new byte[1 << 15];
+
+    static {
+        //Only the 6x6x6 cube and the grey ramp, the first 16 colors differ between terminals
+        int[] palette = new int[256];
+        for (int i = 0; i < 216; i++)
+            palette[16 + i] = CUBE_LEVELS[i / 36] << 16 | CUBE_LEVELS[(i / 6) % 6] << 8 | CUBE_LEVELS[i % 6];
+        for (int i = 0; i < 24; i++) {
+            int grey = 8 + i * 10;
+            palette[232 + i] = grey << 16 | grey << 8 | grey;
+        }
+
+        for (int key = 0; key < TABLE.length; key++) {
+            int r = (key >> 10) << 3 | 4, g = ((key >> 5) & 0x1F) << 3 | 4, b = (key & 0x1F) << 3 | 4;
+            int best = 16;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int i = 16; i < 256; i++) {
+                int dr = r - ((palette[i] >> 16) & 0xFF), dg = g - ((palette[i] >> 8) & 0xFF), db = b - (palette[i] & 0xFF);
+                int distance = dr * dr + dg * dg + db * db;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = i;
+                }
+            }
+            TABLE[key] = (byte) best;
+        }
+    }
+
+    private Ansi256() {
+    }
+
+    public static int index(int rgb) {
+        return TABLE[(rgb >> 9) & 0x7C00 | (rgb >> 6) & 0x3E0 | (rgb >> 3) & 0x1F] & 0xFF;
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.nami;
+
+import java.io.IOException;
+
+//Colors every char with ANSI escape sequences, emitting a new sequence only where the color visibly changes
+public class AnsiTextSink implements TextSink, ColorRowSink {
+
+    private static final char ESC = '\u001B';
+    public static final String RESET = ESC + "[0m";
+    //Largest difference per channel still written in the color of the current run
+    private static final int TRUECOLOR_TOLERANCE = 8;
+
+    private final TextSink sink;
+    private final ColorMode mode;
+    private final StringBuilder line = new StringBuilder();
+    private char[] buffer = new char[0];
+
+    //Color of the current run, -1 before the first escape
+    private int current = -1;
+
+    public AnsiTextSink(TextSink sink, ColorMode mode) {
+        if (mode == ColorMode.NONE)
+            throw new IllegalArgumentException("No color mode given");
+        this.sink = sink;
+        this.mode = mode;
+    }
+
+    @Override
+    public void row(int y, char[] chars, int offset, int length) throws IOException {
+        sink.row(y, chars, offset, length);
+    }
+
+    //The color is kept across line breaks, so runs continue into the next row
+    @Override
+    public void row(int y, char[] chars, int[] rgb, int offset, int length) throws IOException {
+        line.setLength(0);
+        for (int x = offset; x < offset + length; x++) {
+            char chr = chars[x];
+            //Foreground colors do not show on blanks
+            if (chr != ' ') {
+                if (mode == ColorMode.TRUECOLOR)
+                    truecolor(rgb[x]);
+                else
+                    palette(Ansi256.index(rgb[x]));
+            }
+            line.append(chr);
+        }
+
+        if (buffer.length < line.length())
+            buffer = new char[line.length() * 2];
+        line.getChars(0, line.length(), buffer, 0);
+        sink.row(y, buffer, 0, line.length());
+    }
+
+    private void truecolor(int rgb) {
+        if (current >= 0 && near(current, rgb))
+            return;
+        current = rgb;
+        line.append(ESC).append("[38;2;").append((rgb >> 16) & 0xFF).append(';').append((rgb >> 8) & 0xFF).append(';').append(rgb & 0xFF).append('m');
+    }
+
+    private static boolean near(int a, int b) {
+        return Math.abs(((a >> 16) & 0xFF) - ((b >> 16) & 0xFF)) <= TRUECOLOR_TOLERANCE
+                && Math.abs(((a >> 8) & 0xFF) - ((b >> 8) & 0xFF)) <= TRUECOLOR_TOLERANCE
+                && Math.abs((a & 0xFF) - (b & 0xFF)) <= TRUECOLOR_TOLERANCE;
+    }
+
+    private void palette(int index) {
+        if (index == current)
+            return;
+        current = index;
+        line.append(ESC).append("[38;5;").append(index).append('m');
+    }
+
+    @Override
+    public void footer(String text) throws IOException {
+        if (current >= 0)
+            sink.footer(RESET);
+        sink.footer(text);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sink.close();
+    }
+
+}
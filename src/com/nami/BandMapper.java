@@ -0,0 +1,72 @@
+package com.nami;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Maps an image to chars by splitting it into row bands that are converted in parallel, the sink must accept rows in any order.
+//The bands stop once the owner, the thread waiting for them, is interrupted.
+//Floyd-Steinberg carries its error through every row above, so it cannot be split and is never mapped here
+class BandMapper extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    //Bands below this many pixels are not split any further
+    private static final int MIN_BAND_PIXELS = 1 << 16;
+
+    private final LuminanceRaster raster;
+    private final CharTable table;
+    private final Dithering dithering;
+    private final RowSink sink;
+    private final ProgressListener listener;
+    private final AtomicLong rowsDone;
+    private final Thread owner;
+    private final int y0, y1;
+
+    BandMapper(LuminanceRaster raster, CharTable table, Dithering dithering, RowSink sink, ProgressListener listener, Thread owner) {
+        this(raster, table, dithering, sink, listener, new AtomicLong(), owner, 0, raster.getHeight());
+    }
+
+    private BandMapper(LuminanceRaster raster, CharTable table, Dithering dithering, RowSink sink, ProgressListener listener, AtomicLong rowsDone, Thread owner, int y0, int y1) {
+        this.raster = raster;
+        this.table = table;
+        this.dithering = dithering;
+        this.sink = sink;
+        this.listener = listener;
+        this.rowsDone = rowsDone;
+        this.owner = owner;
+        this.y0 = y0;
+        this.y1 = y1;
+    }
+
+    @Override
+    protected void compute() {
+        int width = raster.getWidth();
+        if (y1 - y0 > 1 && (long) (y1 - y0) * width > MIN_BAND_PIXELS) {
+            int mid = (y0 + y1) >>> 1;
+            BandMapper bottom = new BandMapper(raster, table, dithering, sink, listener, rowsDone, owner, mid, y1);
+            bottom.fork();
+            //Unlike invokeAll, the other half is awaited even if this one fails, so no band writes rows once the caller cleans up
+            try {
+                new BandMapper(raster, table, dithering, sink, listener, rowsDone, owner, y0, mid).compute();
+            } finally {
+                bottom.join();
+            }
+            return;
+        }
+
+        RowMapper mapper = new RowMapper(table, false, width, dithering);
+        for (int y = y0; y < y1; y++) {
+            try {
+                ImageToChars.checkInterrupted(owner);
+                mapper.map(raster, y, sink);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            if (listener != ProgressListener.NONE)
+                listener.progress(rowsDone.incrementAndGet(), raster.getHeight());
+        }
+    }
+
+}
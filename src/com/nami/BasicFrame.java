@@ -1,26 +1,17 @@
 package com.nami;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
-import java.awt.font.FontRenderContext;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Rectangle2D;
-import java.awt.image.AffineTransformOp;
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
-public class BasicFrame extends JFrame implements Runnable {
+public class BasicFrame extends JFrame {
 
     //Constants
-    private final String VERSION = "v1.0.0";
-    private final char[] CHARS = {'@', '&', '#', '*', '!', '=', ';', ':', '~', '-', ',', '.', ' '};
-    private final FontRenderContext FRC = new FontRenderContext(new AffineTransform(), false, false);
-    private final int FONT_SIZE = 11;
+    private final String VERSION = ImageToChars.VERSION;
 
     //GUI
     private JPanel panel;
@@ -40,6 +31,16 @@ public class BasicFrame extends JFrame implements Runnable {
     private JProgressBar runProgressBar;
     private JButton runButton;
 
+    //Keeps the luminance of recent images, so converting one again skips decoding and scaling
+    private final ConversionCache cache = new ConversionCache(ConversionCache.DEFAULT_BUDGET, null);
+    //Jobs queued since the last time the queue ran empty
+    private final List<JobQueue.Job> jobs = new ArrayList<>();
+    //Failed jobs of those that were already reported
+    private final Set<JobQueue.Job> reported = new HashSet<>();
+    //All changes since the last update are handled by one update on the EDT
+    private final Runnable jobsChanged = SwingProgress.coalesced(this::jobsChanged);
+    private final JobQueue jobQueue = new JobQueue(JobQueue.DEFAULT_THREADS, ForkJoinPool.commonPool(), cache, job -> jobsChanged.run());
+
     public BasicFrame() {
         //Setting up frame
         setTitle("Image-To-Chars " + VERSION);
@@ -51,11 +52,11 @@ public class BasicFrame extends JFrame implements Runnable {
 
         //Image file chooser
         JFileChooser imageFileChooser = new JFileChooser();
-        imageFileChooser.setDialogTitle("Select Image");
-        imageFileChooser.setMultiSelectionEnabled(false);
+        imageFileChooser.setDialogTitle("Select Images");
+        imageFileChooser.setMultiSelectionEnabled(true);
         imageFileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
         imageFileChooser.setAcceptAllFileFilterUsed(false);
-        String[] exts = {"jpg", "jpeg", "jfif", "pjpeg", "pjp", "png", "bmp", "ico", "cur"};
+        String[] exts = ImageToChars.IMAGE_EXTENSIONS;
         imageFileChooser.addChoosableFileFilter(new FileNameExtensionFilter("Image " + Arrays.toString(exts), exts));
 
         //Folder file chooser
@@ -65,15 +66,7 @@ public class BasicFrame extends JFrame implements Runnable {
         destinationFileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
 
         //Adding monospace fonts to comboBox
-        String[] fontNames = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
-        for (String fn : fontNames) {
-            Font font = new Font(fn, Font.PLAIN, FONT_SIZE);
-            Rectangle2D boundsI = font.getStringBounds("i", FRC);
-            Rectangle2D boundsM = font.getStringBounds("m", FRC);
-            if (boundsI.getWidth() == boundsM.getWidth())
-                fontNameComboBox.addItem(fn);
-        }
-        fontNameComboBox.setSelectedItem("Consolas");
+        FontCache.fill(fontNameComboBox, "Consolas");
 
         //When selecting image
         imagePathSelectButton.addActionListener(e -> {
@@ -81,11 +74,14 @@ public class BasicFrame extends JFrame implements Runnable {
             if (rep != JFileChooser.APPROVE_OPTION)
                 return;
 
-            File file = imageFileChooser.getSelectedFile();
-            imagePathTextField.setText(file.getAbsolutePath());
+            //Several images are listed in one field, separated like a class path
+            StringJoiner paths = new StringJoiner(File.pathSeparator);
+            for (File file : imageFileChooser.getSelectedFiles())
+                paths.add(file.getAbsolutePath());
+            imagePathTextField.setText(paths.toString());
 
             if (destinationPathTextField.getText().trim().isEmpty())
-                destinationPathTextField.setText(file.getParent());
+                destinationPathTextField.setText(imageFileChooser.getSelectedFiles()[0].getParent());
         });
 
         //When selecting Folder
@@ -107,23 +103,30 @@ public class BasicFrame extends JFrame implements Runnable {
         noneScalingRadioButton.addActionListener(e -> fontNameComboBox.setEnabled(false));
 
         //When running program
-        runButton.addActionListener(e -> startCalc());
+        runProgressBar.setStringPainted(true);
+        runProgressBar.setString("");
+        runButton.addActionListener(e -> queueJobs());
 
         setVisible(true);
     }
 
-    private void startCalc() {
-        new Thread(this).start();
-    }
-
-    @Override
-    public void run() {
-        //Check if an image was selected
-        File imgFile = new File(imagePathTextField.getText());
-        if (!imgFile.exists()) {
+    //Queues one job per selected image, so clicking again while running only adds more work
+    private void queueJobs() {
+        //Check if images were selected
+        List<File> imgFiles = new ArrayList<>();
+        for (String path : imagePathTextField.getText().split(File.pathSeparator))
+            if (!path.trim().isEmpty())
+                imgFiles.add(new File(path.trim()));
+        if (imgFiles.isEmpty()) {
             errorWindow("Select image file");
             return;
         }
+        for (File imgFile : imgFiles) {
+            if (!imgFile.exists()) {
+                errorWindow("Image file not found: " + imgFile);
+                return;
+            }
+        }
 
         //Check if a destination was selected
         File destinationFile = new File(destinationPathTextField.getText());
@@ -132,110 +135,38 @@ public class BasicFrame extends JFrame implements Runnable {
             return;
         }
 
-        long startTime = System.nanoTime();
-        runProgressBar.setValue(0);
-
-        //Loading Image
-        BufferedImage rawImg;
-        try {
-            rawImg = ImageIO.read(imgFile);
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            errorWindow("Could not read image file", ex);
-            return;
-        }
-
-        //Calculating scale if needed
-        BufferedImage img;
-        if (!noneScalingRadioButton.isSelected()) {
-            Font font = new Font((String) fontNameComboBox.getSelectedItem(), Font.PLAIN, FONT_SIZE);
-            Rectangle2D bounds = font.getStringBounds("@", FRC);
-            double scale = ((bounds.getHeight() / bounds.getWidth()) * (widthScalingRadioButton.isSelected() ? 1 : 0)) + ((bounds.getWidth() / bounds.getHeight()) * (heightScalingRadioButton.isSelected() ? 1 : 0));
-
-            //Scaling the image
-            img = new BufferedImage((int) (rawImg.getWidth() * (widthScalingRadioButton.isSelected() ? scale : 1)), (int) (rawImg.getHeight() * (heightScalingRadioButton.isSelected() ? scale : 1)),
-                    BufferedImage.TYPE_INT_ARGB);
-            AffineTransform at = AffineTransform.getScaleInstance(widthScalingRadioButton.isSelected() ? scale : 1, heightScalingRadioButton.isSelected() ? scale : 1);
-            AffineTransformOp ato = new AffineTransformOp(at, AffineTransformOp.TYPE_BICUBIC);
-            img = ato.filter(rawImg, img);
-        } else {
-            img = rawImg;
-        }
-
-        // Transforming RGB to Brightness and appending a corresponding Character
-        StringBuilder sb = new StringBuilder();
-        int imgWidth = img.getWidth();
-        int imgHeight = img.getHeight();
-        double pixelSum = imgWidth * imgHeight;
-        for (int y = 0; y < imgHeight; y++) {
-            for (int x = 0; x < imgWidth; x++) {
-                Color color = new Color(img.getRGB(x, y));
-                double brightness = ((0.21d * color.getRed()) + (0.72d * color.getGreen())
-                        + (0.07d * color.getBlue()));
-                double index = brightness / 255 * (CHARS.length - 1);
-                sb.append(CHARS[(int) Math.round(index)]);
-
-                double percent = (double) (x + y * imgWidth) / pixelSum * 100d;
-                runProgressBar.setValue((int) Math.round(percent));
-            }
-            sb.append("\n");
-        }
+        Settings settings = new Settings()
+                .setDestination(destinationFile)
+                .setFontName(FontCache.family((String) fontNameComboBox.getSelectedItem()))
+                .setScaling(widthScalingRadioButton.isSelected() ? Scaling.WIDTH : heightScalingRadioButton.isSelected() ? Scaling.HEIGHT : Scaling.NONE);
+        for (File imgFile : imgFiles)
+            jobs.add(jobQueue.submit(imgFile, settings));
+        updateProgress();
+    }
 
-        // Creating new TXT file
-        File newFile = new File(destinationFile.getAbsolutePath().concat("/").concat(imgFile.getName()).concat(".txt"));
-        if (!newFile.exists()) {
-            try {
-                boolean rep = newFile.createNewFile();
-                if (!rep) {
-                    errorWindow("Could not create new file");
-                    return;
-                }
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                errorWindow("Could not create new file", ex);
-                return;
-            }
-        }
+    //Failures are marked before their dialogs open, updates arriving while one is shown do not report them again
+    private void jobsChanged() {
+        List<JobQueue.Job> failed = new ArrayList<>();
+        for (JobQueue.Job job : jobs)
+            if (job.getState() == JobQueue.State.FAILED && reported.add(job))
+                failed.add(job);
+        for (JobQueue.Job job : failed)
+            errorWindow(String.format("Could not convert image file %s\n%s", job.getImageFile().getName(), job.getMessage()));
+        updateProgress();
+    }
 
-        //Appending processing-specifications to StringBuilder
-        sb.append("\n<INFO>\n");
-        sb.append(String.format("version: %s\n", VERSION));
-        sb.append("author: Memphis\n");
-        sb.append("instagram: @memphis_pc\n");
-        sb.append("discord: Memphis#3543\n");
-        sb.append("github: https://github.com/iNxmi\n");
-        sb.append("website: https://nami.mhergh.com\n");
-
-        sb.append("\n<SETTINGS>\n");
-        sb.append(String.format("filePathTextField: %s\n", imagePathTextField.getText()));
-        sb.append(String.format("destinationPathTextField: %s\n", destinationPathTextField.getText()));
-        sb.append(String.format("fontNameComboBox: %s\n", fontNameComboBox.getSelectedItem()));
-        sb.append(String.format("widthScalingRadioButton: %s\n", widthScalingRadioButton.isSelected()));
-        sb.append(String.format("heightScalingRadioButton: %s\n", heightScalingRadioButton.isSelected()));
-        sb.append(String.format("noneScalingRadioButton: %s\n", noneScalingRadioButton.isSelected()));
-
-        sb.append("\n<PROCESSING-SPECS>\n");
-        sb.append(String.format("rawImgWidth: %spx\n", rawImg.getWidth()));
-        sb.append(String.format("rawImgHeight: %spx\n", rawImg.getHeight()));
-        sb.append(String.format("scaledImgWidth: %spx\n", img.getWidth()));
-        sb.append(String.format("scaledImgHeight: %spx\n", img.getHeight()));
-        sb.append(String.format("processingTime: %sms", (System.nanoTime() - startTime) / 1000000d));
-
-        // Writing to TXT file
-        try (FileWriter fw = new FileWriter(newFile)) {
-            fw.write(sb.toString());
-            fw.flush();
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            errorWindow("Could not save file", ex);
+    //Shows the images finished so far, the finished jobs are dropped once all of them are done
+    private void updateProgress() {
+        int finished = (int) jobs.stream().filter(JobQueue.Job::isFinished).count();
+        runProgressBar.setString(String.format("%s/%s images", finished, jobs.size()));
+        runProgressBar.setValue(jobs.isEmpty() ? 0 : finished * 100 / jobs.size());
+        if (jobs.isEmpty() || finished < jobs.size())
             return;
-        }
-
-        JOptionPane.showMessageDialog(null, String.format("%s\nDone! %sms", newFile.getAbsolutePath(), (System.nanoTime() - startTime) / 1000000d));
-    }
 
-    private void errorWindow(String msg, Exception ex) {
-        JOptionPane.showMessageDialog(null, String.format("Error: %s\n%s", msg, ex.getMessage()), "Error", JOptionPane.ERROR_MESSAGE);
+        long done = jobs.stream().filter(job -> job.getState() == JobQueue.State.DONE).count();
+        jobs.clear();
+        reported.clear();
+        JOptionPane.showMessageDialog(null, String.format("%s\nDone! %s images", destinationPathTextField.getText(), done));
     }
 
     private void errorWindow(String msg) {
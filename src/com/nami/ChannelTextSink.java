@@ -0,0 +1,89 @@
+package com.nami;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+//Encodes rows as they arrive into a direct buffer that is flushed to a channel, rows must come in order
+public class ChannelTextSink implements TextSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final char[] NEWLINE = {'\n'};
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private int nextY;
+
+    public ChannelTextSink(File file, Charset charset) throws IOException {
+        this(file, charset, false);
+    }
+
+    //Appending continues an existing file instead of replacing it
+    public ChannelTextSink(File file, Charset charset, boolean append) throws IOException {
+        this(FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING), charset);
+    }
+
+    //The channel is closed together with the sink
+    public ChannelTextSink(WritableByteChannel channel, Charset charset) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public void row(int y, char[] chars, int offset, int length) throws IOException {
+        if (y != nextY)
+            throw new IllegalStateException(String.format("Expected row %s but got %s", nextY, y));
+        nextY++;
+
+        encode(CharBuffer.wrap(chars, offset, length));
+        encode(CharBuffer.wrap(NEWLINE));
+    }
+
+    @Override
+    public void footer(String text) throws IOException {
+        encode(CharBuffer.wrap(text));
+    }
+
+    private void encode(CharBuffer chars) throws IOException {
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isOverflow())
+                drain();
+            else if (result.isUnderflow())
+                return;
+            else
+                result.throwException();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            encoder.encode(CharBuffer.allocate(0), buffer, true);
+            encoder.flush(buffer);
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
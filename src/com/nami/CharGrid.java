@@ -0,0 +1,61 @@
+package com.nami;
+
+import java.io.IOException;
+
+public class CharGrid implements RowSink {
+
+    private final int width;
+    private final int height;
+    private final char[] chars;
+
+    public CharGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.chars = new char[width * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    //Backing array, row-major without line breaks
+    public char[] getChars() {
+        return chars;
+    }
+
+    public char get(int x, int y) {
+        return chars[x + y * width];
+    }
+
+    public void set(int x, int y, char chr) {
+        chars[x + y * width] = chr;
+    }
+
+    @Override
+    public void row(int y, char[] chars, int offset, int length) {
+        System.arraycopy(chars, offset, this.chars, y * width, length);
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return true;
+    }
+
+    public void writeTo(RowSink sink) throws IOException {
+        for (int y = 0; y < height; y++)
+            sink.row(y, chars, y * width, width);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder((width + 1) * height);
+        for (int y = 0; y < height; y++)
+            sb.append(chars, y * width, width).append('\n');
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.nami;
+
+//Maps a luminance (0-255), or a fine luminance (0-FINE_MAX), to the char of a charset with a single array lookup
+public class CharTable {
+
+    //Fine luminance 21 R + 72 G + 7 B is exactly 100 times 0.21 R + 0.72 G + 0.07 B, so no cell moves because of rounding.
+    //A luminance l stands for the fine luminance l * FINE_SCALE
+    public static final int FINE_SCALE = 100;
+    public static final int FINE_MAX = 255 * FINE_SCALE;
+
+    private final char[] charset;
+    private final char[] table = new char[256];
+    private final char[] fineTable = new char[FINE_MAX + 1];
+    private final int[] quantized = new int[256];
+
+    public CharTable(char[] charset) {
+        this.charset = charset.clone();
+        long max = charset.length - 1;
+        //Same as Math.round(fine / (double) FINE_MAX * max) but in integers
+        for (int fine = 0; fine <= FINE_MAX; fine++)
+            fineTable[fine] = charset[(int) ((fine * max * 2 + FINE_MAX) / (FINE_MAX * 2))];
+        for (int lum = 0; lum < 256; lum++) {
+            int index = (int) ((lum * max * 2 + 255) / 510);
+            table[lum] = fineTable[lum * FINE_SCALE];
+            quantized[lum] = max == 0 ? lum : (int) ((index * 510 + max) / (max * 2));
+        }
+    }
+
+    //Maps every fine luminance to the char with the same code, a luminance l to l * FINE_SCALE
+    private CharTable() {
+        this.charset = new char[0];
+        for (int fine = 0; fine <= FINE_MAX; fine++)
+            fineTable[fine] = (char) fine;
+        for (int lum = 0; lum < 256; lum++) {
+            table[lum] = fineTable[lum * FINE_SCALE];
+            quantized[lum] = lum;
+        }
+    }
+
+    //Table whose chars are the fine luminance itself, so a mapped grid keeps the luminance of every cell
+    static CharTable luminance() {
+        return new CharTable();
+    }
+
+    public char[] getCharset() {
+        return charset.clone();
+    }
+
+    public char get(int lum) {
+        return table[lum];
+    }
+
+    public char getFine(int fine) {
+        return fineTable[fine];
+    }
+
+    //Luminance of the level lum is mapped to, the difference is the error dithering spreads to the neighbours
+    public int quantized(int lum) {
+        return quantized[lum];
+    }
+
+    //Luminance distance between two neighbouring chars
+    public int step() {
+        return charset.length > 1 ? 255 / (charset.length - 1) : 0;
+    }
+
+    //Maps lum[0..length) to chars[offset..offset+length)
+    public void map(int[] lum, char[] chars, int offset, int length) {
+        for (int x = 0; x < length; x++)
+            chars[offset + x] = table[lum[x]];
+    }
+
+    //Maps fine[0..length) to chars[offset..offset+length)
+    public void mapFine(int[] fine, char[] chars, int offset, int length) {
+        for (int x = 0; x < length; x++)
+            chars[offset + x] = fineTable[fine[x]];
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.nami;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class Charsets {
+
+    public static final String DEFAULT = "symbols";
+
+    private static final Map<String, char[]> CHARSETS = new LinkedHashMap<>();
+
+    static {
+        CHARSETS.put("symbols", "@&#*!=;:~-,. ".toCharArray());
+        CHARSETS.put("all", "$@B%8&WM#*oahkbdpqwmZO0QLCJUYXzcvunxrjft/\\|()1{}[]?-_+~<>i!lI;:,\"^`'. ".toCharArray());
+    }
+
+    private Charsets() {
+    }
+
+    public static char[] get(String name) {
+        char[] chars = CHARSETS.get(name);
+        if (chars == null)
+            throw new IllegalArgumentException("Unknown charset: " + name);
+        return chars.clone();
+    }
+
+    public static Iterable<String> names() {
+        return CHARSETS.keySet();
+    }
+
+    //Charset index of every char up to the highest one, -1 for chars outside of it; a char listed twice gets its first index
+    public static int[] indices(char[] charset) {
+        int max = 0;
+        for (char c : charset)
+            max = Math.max(max, c);
+        int[] indices = new int[max + 1];
+        Arrays.fill(indices, -1);
+        for (int i = charset.length - 1; i >= 0; i--)
+            indices[charset[i]] = i;
+        return indices;
+    }
+
+}
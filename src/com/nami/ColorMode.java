@@ -0,0 +1,5 @@
+package com.nami;
+
+public enum ColorMode {
+    NONE, ANSI_256, TRUECOLOR
+}
@@ -0,0 +1,10 @@
+package com.nami;
+
+import java.io.IOException;
+
+//Sink that also takes the packed RGB color of every char
+public interface ColorRowSink extends RowSink {
+
+    void row(int y, char[] chars, int[] rgb, int offset, int length) throws IOException;
+
+}
@@ -0,0 +1,277 @@
+package com.nami;
+
+import javax.imageio.ImageIO;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class CommandLine {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java -cp Image-To-Chars.jar com.nami.CommandLine [options] <image|directory>...",
+            "  -o <dir>       destination folder (default: next to each image)",
+            "  -j <n>         worker threads (default: available processors)",
+            "  -p <n>         threads splitting each image into row bands (default: 1)",
+            "  -c <charset>   " + String.join(" | ", Charsets.names()),
+            "  -f <font>      font family used for aspect correction",
+            "  -s <scaling>   width | height | none",
+            "  -columns <n>   output n chars wide, averaging the pixels of each cell",
+            "  -widths <n,..> decode once and write one output <image>.<n> per width n, resampled from a luminance pyramid",
+            "  -color <mode>  256 | truecolor, color the chars with ANSI escape sequences",
+            "  -match <mode>  brightness | shape, shape matches 8x16 pixel cells against the glyphs of the font",
+            "  -dither <mode> ordered | floyd-steinberg, dither the brightness against banding with few chars",
+            "  -format <fmt>  text | packed | png, packed stores charset indices at a few bits per char in <image>.chars,",
+            "                 expand it with com.nami.PackedReader; png renders the chars in the font to <image>.chars.png",
+            "  -glyph <px>    with -format png, pixel height of one char (default: 16)",
+            "  -cache <dir>   keep finished outputs in dir and reuse them for images with the same content and settings",
+            "  -metrics       write time, allocations and pixels per stage of every image to <image>.metrics.json",
+            "                 and print the p50/p99 of every stage over all images",
+            "  -sequence      convert each animated GIF or folder of numbered images into one uncolored frame file",
+            "  -delta         with -sequence, write only the changed cells of every frame after the first",
+            "  -fps <n>       with -sequence, frame rate of image folders (default: 10)",
+            "  -stream        decode in strips to bound memory by strip size",
+            "  -strip <rows>  rows per strip while streaming (default: from a 32 MB budget)",
+            "  -subsample <n> decode only every n-th pixel while streaming");
+
+    private final Settings settings = new Settings();
+    private final List<File> inputs = new ArrayList<>();
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int parallelism = 1;
+    private boolean sequence, delta;
+    private int fps = 10;
+    private int[] widths;
+    private File cacheDirectory;
+
+    private CommandLine(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-o":
+                    settings.setDestination(new File(value(args, ++i, arg)));
+                    break;
+                case "-j":
+                    workers = Integer.parseInt(value(args, ++i, arg));
+                    if (workers < 1)
+                        throw new IllegalArgumentException("Worker count must be positive");
+                    break;
+                case "-p":
+                    parallelism = Integer.parseInt(value(args, ++i, arg));
+                    if (parallelism < 1)
+                        throw new IllegalArgumentException("Parallelism must be positive");
+                    break;
+                case "-c":
+                    settings.setCharsetName(value(args, ++i, arg));
+                    break;
+                case "-f":
+                    settings.setFontName(value(args, ++i, arg));
+                    break;
+                case "-s":
+                    settings.setScaling(Scaling.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT)));
+                    break;
+                case "-columns":
+                    settings.setColumns(Integer.parseInt(value(args, ++i, arg)));
+                    break;
+                case "-widths":
+                    //Repeated widths are only written once
+                    Set<Integer> distinct = new LinkedHashSet<>();
+                    for (String width : value(args, ++i, arg).split(",")) {
+                        int w = Integer.parseInt(width.trim());
+                        if (w < 1)
+                            throw new IllegalArgumentException("Widths must be positive");
+                        distinct.add(w);
+                    }
+                    widths = distinct.stream().mapToInt(Integer::intValue).toArray();
+                    break;
+                case "-color":
+                    String color = value(args, ++i, arg);
+                    if (color.equals("256"))
+                        settings.setColor(ColorMode.ANSI_256);
+                    else if (color.equalsIgnoreCase("truecolor"))
+                        settings.setColor(ColorMode.TRUECOLOR);
+                    else
+                        throw new IllegalArgumentException("Unknown color mode: " + color);
+                    break;
+                case "-match":
+                    settings.setMatching(Matching.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT)));
+                    break;
+                case "-dither":
+                    settings.setDithering(Dithering.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT).replace('-', '_')));
+                    break;
+                case "-format":
+                    settings.setFormat(OutputFormat.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT)));
+                    break;
+                case "-glyph":
+                    settings.setGlyphHeight(Integer.parseInt(value(args, ++i, arg)));
+                    break;
+                case "-cache":
+                    cacheDirectory = new File(value(args, ++i, arg));
+                    break;
+                case "-metrics":
+                    settings.setMetrics(true);
+                    break;
+                case "-sequence":
+                    sequence = true;
+                    break;
+                case "-delta":
+                    delta = true;
+                    break;
+                case "-fps":
+                    fps = Integer.parseInt(value(args, ++i, arg));
+                    if (fps < 1)
+                        throw new IllegalArgumentException("Frame rate must be positive");
+                    break;
+                case "-stream":
+                    settings.setStreaming(true);
+                    break;
+                case "-strip":
+                    settings.setStripRows(Integer.parseInt(value(args, ++i, arg)));
+                    break;
+                case "-subsample":
+                    settings.setSubsampling(Integer.parseInt(value(args, ++i, arg)));
+                    break;
+                default:
+                    if (arg.startsWith("-"))
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    inputs.add(new File(arg));
+            }
+        }
+        if (inputs.isEmpty())
+            throw new IllegalArgumentException("No input given");
+        if (settings.getFormat() == OutputFormat.PACKED && (sequence || settings.getColor() != ColorMode.NONE))
+            throw new IllegalArgumentException("Packed output works neither with -sequence nor with -color");
+        if (settings.getFormat() == OutputFormat.PNG && sequence)
+            throw new IllegalArgumentException("PNG output does not work with -sequence");
+        if (sequence && settings.getColor() != ColorMode.NONE)
+            throw new IllegalArgumentException("-sequence does not work with -color");
+        if (widths != null && (sequence || settings.isStreaming() || settings.getColor() != ColorMode.NONE || settings.getMatching() == Matching.SHAPE))
+            throw new IllegalArgumentException("-widths works neither with -sequence, -stream, -color nor -match shape");
+        if (settings.getDestination() != null && !settings.getDestination().isDirectory())
+            throw new IllegalArgumentException("Destination is not a folder: " + settings.getDestination());
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length)
+            throw new IllegalArgumentException("Missing value for " + option);
+        return args[i];
+    }
+
+    private List<File> collectImages() throws IOException {
+        List<File> images = new ArrayList<>();
+        for (File input : inputs) {
+            if (sequence && input.exists()) {
+                images.add(input);
+            } else if (input.isDirectory()) {
+                try (Stream<Path> paths = Files.walk(input.toPath())) {
+                    paths.map(Path::toFile).filter(f -> f.isFile() && ImageToChars.isImage(f)).sorted().forEach(images::add);
+                }
+            } else if (input.isFile()) {
+                images.add(input);
+            } else {
+                throw new IOException("No such file or folder: " + input);
+            }
+        }
+        return images;
+    }
+
+    private int run() throws IOException, InterruptedException {
+        List<File> images = collectImages();
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        //Without -cache every image is converted once, hashing it would only cost time and memory
+        ConversionCache cache = cacheDirectory != null ? new ConversionCache(ConversionCache.DEFAULT_BUDGET, cacheDirectory) : null;
+        ImageToChars engine = new ImageToChars(settings, pool, cache);
+        SequenceConverter sequenceConverter = new SequenceConverter(engine, delta, 1000 / fps);
+
+        //Images done so far, only shown on an interactive console
+        ProgressListener progress = System.console() == null ? ProgressListener.NONE
+                : ProgressListener.throttled((done, total) -> System.err.printf("\r%s/%s images", done, total), 4);
+
+        long startTime = System.nanoTime();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Queue<StageMetrics> metrics = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, Math.max(1, images.size())));
+        for (File image : images) {
+            executor.execute(() -> {
+                try {
+                    if (sequence)
+                        sequenceConverter.save(image, ProgressListener.NONE);
+                    else if (widths != null)
+                        engine.saveWidths(image, widths, ProgressListener.NONE);
+                    else {
+                        StageMetrics imageMetrics = new StageMetrics(image.getPath());
+                        engine.save(image, ProgressListener.NONE, imageMetrics);
+                        metrics.add(imageMetrics);
+                    }
+                } catch (Exception | OutOfMemoryError ex) {
+                    failed.incrementAndGet();
+                    System.err.printf("Error: %s\n%s\n", image, ex.getMessage());
+                }
+                progress.progress(done.incrementAndGet(), images.size());
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        if (pool != null)
+            pool.shutdown();
+
+        if (progress != ProgressListener.NONE)
+            System.err.println();
+
+        double seconds = (System.nanoTime() - startTime) / 1000000000d;
+        System.out.printf("Done! %s images, %s failed, %.3fs, %.2f images/s\n",
+                images.size(), failed.get(), seconds, images.size() / seconds);
+        if (settings.isMetrics() && !metrics.isEmpty())
+            printMetrics(new ArrayList<>(metrics));
+        return failed.get() == 0 ? 0 : 1;
+    }
+
+    //Percentiles over all images of every stage
+    private static void printMetrics(List<StageMetrics> metrics) {
+        System.out.printf("%-8s %12s %12s %12s %12s %14s %14s\n", "stage", "p50 ms", "p99 ms", "p50 MB", "p99 MB", "p50 Mpx/s", "p99 Mpx/s");
+        for (Stage stage : Stage.values()) {
+            double[] ms = new double[metrics.size()], mb = new double[metrics.size()], mpx = new double[metrics.size()];
+            for (int i = 0; i < metrics.size(); i++) {
+                ms[i] = metrics.get(i).getNanos(stage) / 1000000d;
+                mb[i] = metrics.get(i).getAllocatedBytes(stage) / 1048576d;
+                mpx[i] = metrics.get(i).getPixelsPerSecond(stage) / 1000000d;
+            }
+            System.out.printf("%-8s %12.3f %12.3f %12.2f %12.2f %14.2f %14.2f\n", stage.name().toLowerCase(Locale.ROOT),
+                    percentile(ms, 50), percentile(ms, 99), percentile(mb, 50), percentile(mb, 99), percentile(mpx, 50), percentile(mpx, 99));
+        }
+    }
+
+    //Nearest-rank percentile
+    private static double percentile(double[] values, int percent) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percent / 100d * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false);
+
+        CommandLine commandLine;
+        try {
+            commandLine = new CommandLine(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.printf("Error: %s\n%s\n", ex.getMessage(), USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try {
+            System.exit(commandLine.run());
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
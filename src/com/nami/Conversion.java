@@ -0,0 +1,62 @@
+package com.nami;
+
+import java.io.File;
+
+public class Conversion {
+
+    private final File imageFile;
+    private final Settings settings;
+    private final int rawWidth, rawHeight;
+    private final int width, height;
+    private final CharGrid grid;
+    private final long startTime;
+
+    public Conversion(File imageFile, Settings settings, int rawWidth, int rawHeight, CharGrid grid, long startTime) {
+        this(imageFile, settings, rawWidth, rawHeight, grid.getWidth(), grid.getHeight(), grid, startTime);
+    }
+
+    //Grid is null when the rows were streamed somewhere else
+    public Conversion(File imageFile, Settings settings, int rawWidth, int rawHeight, int width, int height, CharGrid grid, long startTime) {
+        this.imageFile = imageFile;
+        this.settings = settings;
+        this.rawWidth = rawWidth;
+        this.rawHeight = rawHeight;
+        this.width = width;
+        this.height = height;
+        this.grid = grid;
+        this.startTime = startTime;
+    }
+
+    public File getImageFile() {
+        return imageFile;
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    public int getRawWidth() {
+        return rawWidth;
+    }
+
+    public int getRawHeight() {
+        return rawHeight;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public CharGrid getGrid() {
+        return grid;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.nami;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Luminance grids in memory and finished outputs on disk, keyed by the SHA-256 of the image content and the settings that shape them
+public class ConversionCache {
+
+    public static final long DEFAULT_BUDGET = 128L << 20;
+
+    //Content hashes are remembered per path, size and modification time, a changed file is hashed again
+    private static final int MAX_HASHES = 1 << 14;
+    private static final Map<String, String> HASHES = new ConcurrentHashMap<>();
+
+    private final long budget;
+    private final File directory;
+
+    //In access order, so the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Conversion> grids = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    //Keeps up to budget bytes of luminance grids in memory, finished outputs are only kept if a directory is given
+    public ConversionCache(long budget, File directory) {
+        if (budget < 0)
+            throw new IllegalArgumentException("Budget must not be negative");
+        this.budget = budget;
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public static String hash(File file) throws IOException {
+        String id = file.getAbsolutePath() + '\u0000' + file.length() + '\u0000' + file.lastModified();
+        String hash = HASHES.get(id);
+        if (hash != null)
+            return hash;
+
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16), digest)) {
+            byte[] buffer = new byte[1 << 16];
+            while (in.read(buffer) >= 0) ;
+        }
+        hash = hex(digest.digest());
+        if (HASHES.size() >= MAX_HASHES)
+            HASHES.clear();
+        HASHES.put(id, hash);
+        return hash;
+    }
+
+    public static String hash(String text) {
+        return hex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return sb.toString();
+    }
+
+    //Conversion whose grid holds one luminance (0-255) per char, or null
+    public synchronized Conversion getLuminance(String key) {
+        return grids.get(key);
+    }
+
+    public synchronized void putLuminance(String key, Conversion conversion) {
+        long size = size(conversion);
+        if (size > budget)
+            return;
+
+        Conversion old = grids.put(key, conversion);
+        if (old != null)
+            bytes -= size(old);
+        bytes += size;
+
+        Iterator<Conversion> eldest = grids.values().iterator();
+        while (bytes > budget) {
+            bytes -= size(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private static long size(Conversion conversion) {
+        return 2L * conversion.getGrid().getChars().length;
+    }
+
+    //Text of a finished output without its footer, or null if it was never stored
+    public File getOutput(String key) {
+        if (directory == null)
+            return null;
+        File text = new File(directory, key + ".txt");
+        return new File(directory, key + ".properties").isFile() && text.isFile() ? text : null;
+    }
+
+    //Sizes of a stored output, the footer is written anew for every hit
+    public Conversion getOutputConversion(String key, File imageFile, Settings settings, long startTime) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(new File(directory, key + ".properties").toPath(), StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        return new Conversion(imageFile, settings,
+                Integer.parseInt(props.getProperty("rawWidth")), Integer.parseInt(props.getProperty("rawHeight")),
+                Integer.parseInt(props.getProperty("width")), Integer.parseInt(props.getProperty("height")),
+                null, startTime);
+    }
+
+    //File to write the text of a new output to before it is handed to putOutput
+    public File newOutputFile(String key) throws IOException {
+        Files.createDirectories(directory.toPath());
+        return File.createTempFile(key, ".tmp", directory);
+    }
+
+    //The properties are moved last, an entry without them is never read
+    public void putOutput(String key, File text, Conversion conversion) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("rawWidth", Integer.toString(conversion.getRawWidth()));
+        props.setProperty("rawHeight", Integer.toString(conversion.getRawHeight()));
+        props.setProperty("width", Integer.toString(conversion.getWidth()));
+        props.setProperty("height", Integer.toString(conversion.getHeight()));
+
+        File tmp = File.createTempFile(key, ".tmp", directory);
+        try {
+            try (Writer writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                props.store(writer, null);
+            }
+            Files.move(text.toPath(), new File(directory, key + ".txt").toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tmp.toPath(), new File(directory, key + ".properties").toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+}
@@ -0,0 +1,329 @@
+package com.nami;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Converts images posted to /convert and streams the char art back, so other processes on the host skip the JVM startup
+public class ConversionServer {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java -cp Image-To-Chars.jar com.nami.ConversionServer [options]",
+            "  -host <host>     address to listen on (default: 127.0.0.1)",
+            "  -port <port>     port to listen on (default: 8080)",
+            "  -j <n>           images converted at the same time (default: as many largest images as fit into the heap,",
+            "                   at most available processors)",
+            "  -queue <n>       requests waiting for a conversion before new ones get 429 (default: 64)",
+            "  -wait <ms>       time a request waits for a conversion before it gets 503 (default: 10000)",
+            "  -max-upload <mb> largest accepted upload (default: 32)",
+            "  -max-pixels <mp> largest accepted image in megapixels (default: 64)",
+            "",
+            "POST the image bytes to /convert, settings go into the query:",
+            "  charset=<" + String.join("|", Charsets.names()) + "> font=<font> scaling=<width|height|none> columns=<n>",
+            "  color=<256|truecolor> match=<brightness|shape> dither=<none|ordered|floyd-steinberg>");
+
+    //Heap bytes of one pixel in the worst case: the decoded ARGB image plus a scaled ARGB copy, which width scaling can make twice as large
+    private static final int BYTES_PER_PIXEL = 12;
+
+    private String host = "127.0.0.1";
+    private int port = 8080;
+    private int concurrency;
+    private int queue = 64;
+    private long waitMillis = 10000;
+    private long maxUpload = 32L << 20;
+    private long maxPixels = 64000000L;
+
+    private Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private ConversionServer(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-host":
+                    host = value(args, ++i, arg);
+                    break;
+                case "-port":
+                    port = Integer.parseInt(value(args, ++i, arg));
+                    break;
+                case "-j":
+                    concurrency = positive(Integer.parseInt(value(args, ++i, arg)), "Conversion count");
+                    break;
+                case "-queue":
+                    queue = Integer.parseInt(value(args, ++i, arg));
+                    if (queue < 0)
+                        throw new IllegalArgumentException("Queue size must not be negative");
+                    break;
+                case "-wait":
+                    waitMillis = positive(Long.parseLong(value(args, ++i, arg)), "Wait time");
+                    break;
+                case "-max-upload":
+                    maxUpload = positive(Long.parseLong(value(args, ++i, arg)), "Upload limit") << 20;
+                    break;
+                case "-max-pixels":
+                    maxPixels = positive(Long.parseLong(value(args, ++i, arg)), "Pixel limit") * 1000000L;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (concurrency == 0)
+            concurrency = defaultConcurrency(maxUpload, maxPixels);
+    }
+
+    //Permits count requests, so by default there are only as many as the heap holds at the upload and pixel limits
+    private static int defaultConcurrency(long maxUpload, long maxPixels) {
+        long perRequest = maxUpload + maxPixels * BYTES_PER_PIXEL;
+        long fit = Runtime.getRuntime().maxMemory() / perRequest;
+        return (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), fit));
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length)
+            throw new IllegalArgumentException("Missing value for " + option);
+        return args[i];
+    }
+
+    private static <T extends Number> T positive(T value, String name) {
+        if (value.longValue() < 1)
+            throw new IllegalArgumentException(name + " must be positive");
+        return value;
+    }
+
+    //A virtual thread per request where the runtime has them (Java 21+), pooled platform threads otherwise
+    private static ExecutorService executor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void start() throws IOException {
+        permits = new Semaphore(concurrency);
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.setExecutor(executor());
+        server.createContext("/convert", this::convert);
+        server.createContext("/health", exchange -> respond(exchange, 200, "ok"));
+        server.start();
+        System.out.printf("Listening on http://%s:%s/convert, %s conversions at a time\n", host, server.getAddress().getPort(), concurrency);
+    }
+
+    private void convert(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "POST the image to convert");
+                return;
+            }
+
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            if (length != null && Long.parseLong(length) > maxUpload) {
+                respond(exchange, 413, "Image larger than " + (maxUpload >> 20) + " MB");
+                return;
+            }
+
+            Settings settings;
+            try {
+                settings = settings(exchange.getRequestURI().getRawQuery());
+            } catch (IllegalArgumentException ex) {
+                respond(exchange, 400, ex.getMessage());
+                return;
+            }
+
+            //Only requests without a free permit queue up, those beyond the queue are turned away at once
+            //and queued ones give up after the wait time
+            if (!permits.tryAcquire()) {
+                if (waiting.incrementAndGet() > queue) {
+                    waiting.decrementAndGet();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    respond(exchange, 429, "Too many requests");
+                    return;
+                }
+                try {
+                    if (!permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+                        exchange.getResponseHeaders().set("Retry-After", "1");
+                        respond(exchange, 503, "Server busy");
+                        return;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+
+            //The upload is only read with a permit, so waiting requests hold no image data
+            try {
+                convert(exchange, settings);
+            } finally {
+                permits.release();
+            }
+        } catch (IOException | RuntimeException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void convert(HttpExchange exchange, Settings settings) throws IOException {
+        byte[] upload = read(exchange.getRequestBody());
+        if (upload == null) {
+            respond(exchange, 413, "Image larger than " + (maxUpload >> 20) + " MB");
+            return;
+        }
+
+        BufferedImage img;
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(upload))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                respond(exchange, 415, "Unsupported image format");
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                //Checked from the header, before the pixels take up any memory
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    respond(exchange, 413, "Image larger than " + maxPixels / 1000000 + " megapixels");
+                    return;
+                }
+                img = reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException ex) {
+            respond(exchange, 400, "Could not read image: " + ex.getMessage());
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=" + settings.getEncoding().name());
+        ImageToChars engine = new ImageToChars(settings);
+        TextSink[] sink = new TextSink[1];
+        try {
+            engine.convert(new File("upload"), img, (width, height) -> {
+                //Chunked, rows go out as soon as they are mapped
+                exchange.sendResponseHeaders(200, 0);
+                TextSink text = new ChannelTextSink(Channels.newChannel(exchange.getResponseBody()), settings.getEncoding());
+                return sink[0] = settings.getColor() != ColorMode.NONE ? new AnsiTextSink(text, settings.getColor()) : text;
+            }, System.nanoTime(), ProgressListener.NONE);
+            //Only resets the color, files get the settings footer instead
+            if (sink[0] instanceof AnsiTextSink)
+                sink[0].footer("");
+        } catch (IOException | RuntimeException ex) {
+            //Once the headers are out the status cannot change anymore, the client only sees the body end early
+            if (exchange.getResponseCode() != -1)
+                throw ex;
+            ex.printStackTrace();
+            respond(exchange, 500, "Conversion failed: " + ex.getMessage());
+        } finally {
+            if (sink[0] != null)
+                sink[0].close();
+        }
+    }
+
+    //Null if the upload exceeds the limit
+    private byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+            if (out.size() > maxUpload)
+                return null;
+        }
+        return out.toByteArray();
+    }
+
+    private static Settings settings(String query) {
+        Settings settings = new Settings();
+        if (query == null)
+            return settings;
+
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty())
+                continue;
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            switch (key) {
+                case "charset":
+                    settings.setCharsetName(value);
+                    break;
+                case "font":
+                    if (!FontCache.isInstalledMonospace(value))
+                        throw new IllegalArgumentException("Unknown monospace font: " + value);
+                    settings.setFontName(value);
+                    break;
+                case "scaling":
+                    settings.setScaling(Scaling.valueOf(value.toUpperCase(Locale.ROOT)));
+                    break;
+                case "columns":
+                    settings.setColumns(Integer.parseInt(value));
+                    break;
+                case "color":
+                    if (value.equals("256"))
+                        settings.setColor(ColorMode.ANSI_256);
+                    else if (value.equalsIgnoreCase("truecolor"))
+                        settings.setColor(ColorMode.TRUECOLOR);
+                    else
+                        throw new IllegalArgumentException("Unknown color mode: " + value);
+                    break;
+                case "match":
+                    settings.setMatching(Matching.valueOf(value.toUpperCase(Locale.ROOT)));
+                    break;
+                case "dither":
+                    settings.setDithering(Dithering.valueOf(value.toUpperCase(Locale.ROOT).replace('-', '_')));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown setting: " + key);
+            }
+        }
+        return settings;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        ImageIO.setUseCache(false);
+
+        ConversionServer server;
+        try {
+            server = new ConversionServer(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.printf("Error: %s\n%s\n", ex.getMessage(), USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try {
+            server.start();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
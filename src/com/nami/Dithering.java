@@ -0,0 +1,5 @@
+package com.nami;
+
+public enum Dithering {
+    NONE, ORDERED, FLOYD_STEINBERG
+}
@@ -0,0 +1,146 @@
+package com.nami;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Monospace font discovery and glyph aspect ratios, persisted per installed font set
+public final class FontCache {
+
+    private static final File FILE = new File(System.getProperty("user.home"), ".image-to-chars/fonts.properties");
+    private static final FontRenderContext FRC = new FontRenderContext(new AffineTransform(), false, false);
+    private static final int MONOSPACE_FONT_SIZE = 16;
+    private static final int ASPECT_FONT_SIZE = 100;
+
+    private static final String KEY = "fontSet";
+    private static final String FAMILIES = "monospace";
+    private static final String ASPECT_PREFIX = "aspect.";
+
+    //Width / height of "@" per family
+    private static final Map<String, Double> ASPECTS = new ConcurrentHashMap<>();
+
+    private FontCache() {
+    }
+
+    //Family the glyphs are drawn with, no font name falls back to the logical monospaced font
+    public static String family(String fontName) {
+        return fontName != null ? fontName : Font.MONOSPACED;
+    }
+
+    public static double aspect(String fontName) {
+        return ASPECTS.computeIfAbsent(family(fontName), FontCache::measureAspect);
+    }
+
+    private static double measureAspect(String fontName) {
+        Rectangle2D bounds = new Font(fontName, Font.PLAIN, ASPECT_FONT_SIZE).getStringBounds("@", FRC);
+        return bounds.getWidth() / bounds.getHeight();
+    }
+
+    //Whether the family is installed and monospace, anything else would only fill the caches with fallback fonts
+    public static boolean isInstalledMonospace(String family) {
+        return Installed.FAMILIES.contains(family) && isMonospace(family);
+    }
+
+    private static final class Installed {
+        private static final Set<String> FAMILIES = Set.of(GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames());
+    }
+
+    private static boolean isMonospace(String fontName) {
+        Font font = new Font(fontName, Font.PLAIN, MONOSPACE_FONT_SIZE);
+        return font.getStringBounds("i", FRC).getWidth() == font.getStringBounds("m", FRC).getWidth();
+    }
+
+    //Identifies the installed font set, measurements are redone whenever it or the JDK changes
+    private static String fontSetKey(String[] families) {
+        return Integer.toHexString(Arrays.hashCode(families)) + "-" + families.length + "-" + System.getProperty("java.version");
+    }
+
+    //Cached monospace families if the installed font set did not change, otherwise null
+    private static List<String> load(String key) {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(FILE.toPath(), StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (IOException ex) {
+            return null;
+        }
+        if (!key.equals(props.getProperty(KEY)) || props.getProperty(FAMILIES) == null)
+            return null;
+
+        List<String> families = new ArrayList<>();
+        for (String family : props.getProperty(FAMILIES).split("\n")) {
+            if (family.isEmpty())
+                continue;
+            families.add(family);
+            String aspect = props.getProperty(ASPECT_PREFIX + family);
+            if (aspect != null)
+                ASPECTS.putIfAbsent(family, Double.parseDouble(aspect));
+        }
+        return families;
+    }
+
+    private static void store(String key, List<String> families) {
+        Properties props = new Properties();
+        props.setProperty(KEY, key);
+        props.setProperty(FAMILIES, String.join("\n", families));
+        for (String family : families)
+            props.setProperty(ASPECT_PREFIX + family, Double.toString(aspect(family)));
+
+        try {
+            Files.createDirectories(FILE.getParentFile().toPath());
+            File tmp = new File(FILE.getParentFile(), FILE.getName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                props.store(writer, "Image-To-Chars font cache");
+            }
+            Files.move(tmp.toPath(), FILE.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    //Fills the combo box with monospace families in the background, adding them as they are found
+    public static void fill(JComboBox<String> comboBox, String preferred) {
+        new SwingWorker<List<String>, String>() {
+            @Override
+            protected List<String> doInBackground() {
+                String[] installed = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
+                String key = fontSetKey(installed);
+
+                List<String> families = load(key);
+                if (families != null) {
+                    publish(families.toArray(new String[0]));
+                    return families;
+                }
+
+                families = new ArrayList<>();
+                for (String family : installed) {
+                    if (isMonospace(family)) {
+                        aspect(family);
+                        families.add(family);
+                        publish(family);
+                    }
+                }
+                store(key, families);
+                return families;
+            }
+
+            @Override
+            protected void process(List<String> chunk) {
+                for (String family : chunk) {
+                    comboBox.addItem(family);
+                    if (family.equals(preferred))
+                        comboBox.setSelectedItem(family);
+                }
+            }
+        }.execute();
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.nami;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//Reads the frames of an animated GIF or a folder of numbered images through a single ImageReader
+public class FrameReader implements Closeable {
+
+    public static class Frame {
+        private final int index;
+        private final BufferedImage image;
+        private final int delay;
+
+        Frame(int index, BufferedImage image, int delay) {
+            this.index = index;
+            this.image = image;
+            this.delay = delay;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        //Display time in ms
+        public int getDelay() {
+            return delay;
+        }
+    }
+
+    private static final String GIF_FORMAT = "javax_imageio_gif_image_1.0";
+    private static final Pattern NUMBER = Pattern.compile("(\\d+)(?!.*\\d)");
+
+    private final List<File> files;
+    private final int defaultDelay;
+    private ImageInputStream input;
+    private ImageReader reader;
+    private int next, count;
+
+    //GIF compositing state
+    private BufferedImage canvas;
+    private BufferedImage previous;
+    private String disposal = "none";
+    private Rectangle disposalArea;
+
+    //A folder is read as numbered frames, anything else as one multi-frame file
+    public FrameReader(File input, int defaultDelay) throws IOException {
+        this.defaultDelay = defaultDelay;
+        if (input.isDirectory()) {
+            files = numberedImages(input);
+            if (files.isEmpty())
+                throw new IOException("No images in folder: " + input);
+            count = files.size();
+        } else {
+            files = null;
+            open(input);
+            count = reader.getNumImages(true);
+        }
+    }
+
+    //Only images count as frames, so outputs and metrics written into the folder by an earlier run are skipped
+    private static List<File> numberedImages(File folder) {
+        List<File> images = new ArrayList<>();
+        File[] children = folder.listFiles();
+        if (children != null)
+            for (File child : children)
+                if (child.isFile() && ImageToChars.isImage(child) && NUMBER.matcher(child.getName().replaceFirst("\\.[^.]*$", "")).find())
+                    images.add(child);
+        images.sort(Comparator.comparingLong(FrameReader::frameNumber).thenComparing(File::getName));
+        return images;
+    }
+
+    private static long frameNumber(File file) {
+        Matcher matcher = NUMBER.matcher(file.getName().replaceFirst("\\.[^.]*$", ""));
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : Long.MAX_VALUE;
+    }
+
+    //Reuses the current reader as long as the format stays the same
+    private void open(File file) throws IOException {
+        if (input != null)
+            input.close();
+        input = ImageIO.createImageInputStream(file);
+        if (input == null)
+            throw new IOException("Could not open image file: " + file.getName());
+
+        if (reader != null && reader.getOriginatingProvider().canDecodeInput(input)) {
+            reader.setInput(input, false, false);
+            return;
+        }
+        if (reader != null)
+            reader.dispose();
+
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext())
+            throw new IOException("Unsupported image format: " + file.getName());
+        reader = readers.next();
+        reader.setInput(input, false, false);
+    }
+
+    public int getFrameCount() {
+        return count;
+    }
+
+    //Next frame or null when done; the image is never reused, so frames can be handed to other threads
+    public Frame next() throws IOException {
+        if (next >= count)
+            return null;
+
+        int index = next++;
+        if (files != null) {
+            open(files.get(index));
+            return new Frame(index, reader.read(0), defaultDelay);
+        }
+
+        IIOMetadata metadata = reader.getImageMetadata(index);
+        BufferedImage image = reader.read(index);
+        if (!GIF_FORMAT.equals(metadata.getNativeMetadataFormatName()))
+            return new Frame(index, image, defaultDelay);
+        return composite(index, image, (IIOMetadataNode) metadata.getAsTree(GIF_FORMAT));
+    }
+
+    //GIF frames are patches drawn onto a canvas that is cleaned up according to the previous frame's disposal method
+    private Frame composite(int index, BufferedImage image, IIOMetadataNode tree) throws IOException {
+        if (canvas == null) {
+            int width = reader.getWidth(0), height = reader.getHeight(0);
+            IIOMetadata streamMetadata = reader.getStreamMetadata();
+            if (streamMetadata != null) {
+                IIOMetadataNode screen = child((IIOMetadataNode) streamMetadata.getAsTree(streamMetadata.getNativeMetadataFormatName()), "LogicalScreenDescriptor");
+                if (screen != null) {
+                    width = Math.max(width, Integer.parseInt(screen.getAttribute("logicalScreenWidth")));
+                    height = Math.max(height, Integer.parseInt(screen.getAttribute("logicalScreenHeight")));
+                }
+            }
+            canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        Graphics2D g = canvas.createGraphics();
+        if (disposal.equals("restoreToBackgroundColor")) {
+            g.setComposite(AlphaComposite.Clear);
+            g.fill(disposalArea);
+            g.setComposite(AlphaComposite.SrcOver);
+        } else if (disposal.equals("restoreToPrevious") && previous != null) {
+            canvas.setData(previous.getRaster());
+        }
+
+        IIOMetadataNode descriptor = child(tree, "ImageDescriptor");
+        IIOMetadataNode control = child(tree, "GraphicControlExtension");
+        int x = descriptor != null ? Integer.parseInt(descriptor.getAttribute("imageLeftPosition")) : 0;
+        int y = descriptor != null ? Integer.parseInt(descriptor.getAttribute("imageTopPosition")) : 0;
+        disposal = control != null ? control.getAttribute("disposalMethod") : "none";
+        disposalArea = new Rectangle(x, y, image.getWidth(), image.getHeight());
+        int delay = control != null ? Integer.parseInt(control.getAttribute("delayTime")) * 10 : defaultDelay;
+
+        if (disposal.equals("restoreToPrevious"))
+            previous = copy(canvas);
+        g.drawImage(image, x, y, null);
+        g.dispose();
+
+        return new Frame(index, copy(canvas), delay > 0 ? delay : defaultDelay);
+    }
+
+    private static IIOMetadataNode child(IIOMetadataNode node, String name) {
+        for (int i = 0; i < node.getLength(); i++)
+            if (node.item(i).getNodeName().equals(name))
+                return (IIOMetadataNode) node.item(i);
+        return null;
+    }
+
+    private static BufferedImage copy(BufferedImage img) {
+        return new BufferedImage(img.getColorModel(), img.copyData(null), img.isAlphaPremultiplied(), null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null)
+            reader.dispose();
+        if (input != null)
+            input.close();
+    }
+
+}
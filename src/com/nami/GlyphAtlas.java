@@ -0,0 +1,102 @@
+package com.nami;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Glyphs of a charset rendered once into cells of the font's aspect ratio, so drawing a char is a copy of a few int rows
+final class GlyphAtlas {
+
+    private static final Map<String, GlyphAtlas> CACHE = new ConcurrentHashMap<>();
+
+    private final int cellWidth, cellHeight;
+    private final int[] indices;
+    //Ink coverage 0-255 and black on white RGB of every glyph, cell after cell, row after row
+    private final byte[] coverage;
+    private final int[] pixels;
+
+    private GlyphAtlas(String fontName, char[] chars, int cellHeight) {
+        this.cellHeight = cellHeight;
+        //Same width / height of "@" the scaling step uses, so cells have the aspect ratio the image was scaled for
+        this.cellWidth = Math.max(1, (int) Math.round(cellHeight * FontCache.aspect(fontName)));
+
+        indices = Charsets.indices(chars);
+
+        int cellPixels = cellWidth * cellHeight;
+        coverage = new byte[chars.length * cellPixels];
+        pixels = new int[chars.length * cellPixels];
+
+        BufferedImage cell = new BufferedImage(cellWidth, cellHeight, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] gray = ((DataBufferByte) cell.getRaster().getDataBuffer()).getData();
+        Graphics2D g = cell.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        g.setFont(new Font(FontCache.family(fontName), Font.PLAIN, cellHeight));
+        FontMetrics metrics = g.getFontMetrics();
+        g.scale((double) cellWidth / metrics.charWidth('@'), (double) cellHeight / metrics.getHeight());
+
+        for (int i = 0; i < chars.length; i++) {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, metrics.charWidth('@'), metrics.getHeight());
+            g.setColor(Color.BLACK);
+            g.drawString(String.valueOf(chars[i]), 0, metrics.getAscent());
+
+            for (int p = 0; p < cellPixels; p++) {
+                int value = gray[p] & 0xFF;
+                coverage[i * cellPixels + p] = (byte) (255 - value);
+                pixels[i * cellPixels + p] = value << 16 | value << 8 | value;
+            }
+        }
+        g.dispose();
+    }
+
+    static GlyphAtlas of(String fontName, char[] chars, int cellHeight) {
+        return CACHE.computeIfAbsent(fontName + '\u0000' + cellHeight + '\u0000' + new String(chars), key -> new GlyphAtlas(fontName, chars, cellHeight));
+    }
+
+    int getCellWidth() {
+        return cellWidth;
+    }
+
+    int getCellHeight() {
+        return cellHeight;
+    }
+
+    //Draws c black on white with its top left corner at offset of an image dst that is stride pixels wide
+    void draw(char c, int[] dst, int offset, int stride) {
+        int index = c < indices.length ? indices[c] : -1;
+        if (index < 0) {
+            for (int r = 0; r < cellHeight; r++)
+                Arrays.fill(dst, offset + r * stride, offset + r * stride + cellWidth, 0xFFFFFF);
+            return;
+        }
+
+        int src = index * cellWidth * cellHeight;
+        for (int r = 0; r < cellHeight; r++)
+            System.arraycopy(pixels, src + r * cellWidth, dst, offset + r * stride, cellWidth);
+    }
+
+    //Draws c in the color rgb on white, dense chars still stand for dark cells like in the text
+    void draw(char c, int rgb, int[] dst, int offset, int stride) {
+        int index = c < indices.length ? indices[c] : -1;
+        if (index < 0) {
+            draw(c, dst, offset, stride);
+            return;
+        }
+
+        int red = (rgb >> 16) & 0xFF, green = (rgb >> 8) & 0xFF, blue = rgb & 0xFF;
+        int src = index * cellWidth * cellHeight;
+        for (int r = 0; r < cellHeight; r++) {
+            int d = offset + r * stride;
+            for (int x = 0; x < cellWidth; x++) {
+                int ink = coverage[src++] & 0xFF, paper = 255 - ink;
+                dst[d + x] = (red * ink + 255 * paper + 127) / 255 << 16 | (green * ink + 255 * paper + 127) / 255 << 8
+                        | (blue * ink + 255 * paper + 127) / 255;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.nami;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Glyphs of a charset rasterized once into 8x16 bitmaps, packed into two longs so a cell is compared with a few popcounts
+final class GlyphIndex {
+
+    static final int CELL_WIDTH = 8, CELL_HEIGHT = 16;
+
+    //Glyphs are rendered this large and scaled into the cell
+    private static final int RENDER_FONT_SIZE = 64;
+    //Weight of one differing pixel against one step of brightness difference
+    private static final int SHAPE_WEIGHT = 4;
+
+    private static final Map<String, GlyphIndex> CACHE = new ConcurrentHashMap<>();
+
+    private final char[] chars;
+    //Pixel rows 0-7 and 8-15, one byte per row with the leftmost pixel in the lowest bit
+    private final long[] top, bottom;
+    //Ink of every glyph scaled to 0 (least) - 255 (most)
+    private final int[] ink;
+
+    private GlyphIndex(String fontName, char[] chars) {
+        this.chars = chars.clone();
+        this.top = new long[chars.length];
+        this.bottom = new long[chars.length];
+        this.ink = new int[chars.length];
+
+        BufferedImage cell = new BufferedImage(CELL_WIDTH, CELL_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] pixels = ((DataBufferByte) cell.getRaster().getDataBuffer()).getData();
+        Graphics2D g = cell.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        g.setFont(new Font(FontCache.family(fontName), Font.PLAIN, RENDER_FONT_SIZE));
+        FontMetrics metrics = g.getFontMetrics();
+        g.scale((double) CELL_WIDTH / metrics.charWidth('@'), (double) CELL_HEIGHT / metrics.getHeight());
+
+        int[] coverage = new int[chars.length];
+        int min = Integer.MAX_VALUE, max = 0;
+        for (int i = 0; i < chars.length; i++) {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, metrics.charWidth('@'), metrics.getHeight());
+            g.setColor(Color.BLACK);
+            g.drawString(String.valueOf(chars[i]), 0, metrics.getAscent());
+
+            for (int p = 0; p < pixels.length; p++) {
+                int dark = 255 - (pixels[p] & 0xFF);
+                coverage[i] += dark;
+                if (dark >= 128) {
+                    if (p < 64)
+                        top[i] |= 1L << p;
+                    else
+                        bottom[i] |= 1L << (p - 64);
+                }
+            }
+            min = Math.min(min, coverage[i]);
+            max = Math.max(max, coverage[i]);
+        }
+        g.dispose();
+
+        for (int i = 0; i < chars.length; i++)
+            ink[i] = max > min ? (int) ((coverage[i] - min) * 255L / (max - min)) : 0;
+    }
+
+    static GlyphIndex of(String fontName, char[] chars) {
+        return CACHE.computeIfAbsent(fontName + '\u0000' + new String(chars), key -> new GlyphIndex(fontName, chars));
+    }
+
+    //Nearest glyph by differing pixels, with the difference between glyph ink and cell darkness (0-255) breaking ties
+    char match(long top, long bottom, int darkness) {
+        int best = 0;
+        int bestCost = Integer.MAX_VALUE;
+        for (int i = 0; i < chars.length; i++) {
+            int cost = SHAPE_WEIGHT * (Long.bitCount(top ^ this.top[i]) + Long.bitCount(bottom ^ this.bottom[i]))
+                    + Math.abs(ink[i] - darkness);
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = i;
+            }
+        }
+        return chars[best];
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.nami;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+//Collects the chars, and colors if given, of all rows and renders them as a PNG through a glyph atlas on close.
+//Rows may arrive in any order and from several threads at once, every row only touches its own part of the arrays
+public class ImageTextSink implements TextSink, ColorRowSink {
+
+    //Rendered images above this many pixels are refused instead of running out of memory
+    public static final long MAX_PIXELS = 1L << 28;
+
+    private static final String PNG_FORMAT = "javax_imageio_png_1.0";
+    //Char rows handed to one rendering task
+    private static final int BAND_ROWS = 16;
+
+    private final File file;
+    private final GlyphAtlas atlas;
+    private final int width, height;
+    private final char[] chars;
+    private final int[] rgb;
+    private final ForkJoinPool pool;
+    private String footer;
+    private boolean closed;
+
+    //The chars are drawn black on white, or in their color on white
+    public ImageTextSink(File file, String fontName, char[] charset, int cellHeight, int width, int height, boolean color, ForkJoinPool pool) throws IOException {
+        this.atlas = GlyphAtlas.of(fontName, charset, cellHeight);
+        long pixels = (long) width * atlas.getCellWidth() * height * atlas.getCellHeight();
+        if (pixels > MAX_PIXELS)
+            throw new IOException(String.format("Rendered image would have %s x %s pixels, use fewer columns or a smaller glyph height",
+                    (long) width * atlas.getCellWidth(), (long) height * atlas.getCellHeight()));
+
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.chars = new char[width * height];
+        this.rgb = color ? new int[width * height] : null;
+        this.pool = pool != null ? pool : ForkJoinPool.commonPool();
+    }
+
+    @Override
+    public void row(int y, char[] chars, int offset, int length) {
+        System.arraycopy(chars, offset, this.chars, y * width, length);
+    }
+
+    @Override
+    public void row(int y, char[] chars, int[] rgb, int offset, int length) {
+        System.arraycopy(chars, offset, this.chars, y * width, length);
+        if (this.rgb != null)
+            System.arraycopy(rgb, offset, this.rgb, y * width, length);
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return true;
+    }
+
+    //Stored as a text chunk of the PNG
+    @Override
+    public void footer(String text) {
+        footer = footer == null ? text : footer + text;
+    }
+
+    //Only a sink that got its footer, so a complete image, is written; failed conversions just close it
+    @Override
+    public void close() throws IOException {
+        //A second close would render and write the whole image again
+        if (closed)
+            return;
+        closed = true;
+        if (footer != null)
+            write(render());
+    }
+
+    //Every band of char rows is blitted into the int array of the image by its own task
+    private BufferedImage render() {
+        int cellWidth = atlas.getCellWidth(), cellHeight = atlas.getCellHeight();
+        BufferedImage img = new BufferedImage(width * cellWidth, height * cellHeight, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        int stride = img.getWidth();
+
+        List<ForkJoinTask<?>> bands = new ArrayList<>();
+        for (int y0 = 0; y0 < height; y0 += BAND_ROWS) {
+            int from = y0, to = Math.min(height, y0 + BAND_ROWS);
+            bands.add(pool.submit(() -> {
+                for (int y = from; y < to; y++) {
+                    int offset = y * cellHeight * stride;
+                    for (int x = 0; x < width; x++, offset += cellWidth) {
+                        if (rgb != null)
+                            atlas.draw(chars[y * width + x], rgb[y * width + x], pixels, offset, stride);
+                        else
+                            atlas.draw(chars[y * width + x], pixels, offset, stride);
+                    }
+                }
+            }));
+        }
+        bands.forEach(ForkJoinTask::join);
+        return img;
+    }
+
+    private void write(BufferedImage img) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try (OutputStream stream = Files.newOutputStream(file.toPath());
+             ImageOutputStream out = ImageIO.createImageOutputStream(stream)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(img), param);
+
+            //iTXt keeps the UTF-8 of file paths in the footer
+            IIOMetadataNode entry = new IIOMetadataNode("iTXtEntry");
+            entry.setAttribute("keyword", "Comment");
+            entry.setAttribute("compressionFlag", "FALSE");
+            entry.setAttribute("compressionMethod", "0");
+            entry.setAttribute("languageTag", "");
+            entry.setAttribute("translatedKeyword", "");
+            entry.setAttribute("text", footer);
+            IIOMetadataNode text = new IIOMetadataNode("iTXt");
+            text.appendChild(entry);
+            IIOMetadataNode root = new IIOMetadataNode(PNG_FORMAT);
+            root.appendChild(text);
+            metadata.mergeTree(PNG_FORMAT, root);
+
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(img, null, metadata), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,707 @@
+package com.nami;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ImageToChars {
+
+    //Constants
+    public static final String VERSION = "v1.0.0";
+    public static final String[] IMAGE_EXTENSIONS = {"jpg", "jpeg", "jfif", "pjpeg", "pjp", "png", "bmp", "ico", "cur"};
+    //Rendered char art, told apart from the PNGs it was made of
+    public static final String PNG_EXTENSION = ".chars.png";
+
+    //Rows of the scaled image handed to one scaling task
+    private static final int SCALE_BAND_ROWS = 256;
+
+    @FunctionalInterface
+    public interface Output {
+        RowSink open(int width, int height) throws IOException;
+    }
+
+    //Maps every fine luminance to the char with the same code, so the result of a conversion is its luminance grid
+    private static final CharTable LUMINANCE_TABLE = CharTable.luminance();
+
+    private final Settings settings;
+    private final CharTable table;
+    private final ForkJoinPool pool;
+    private final ConversionCache cache;
+
+    public ImageToChars(Settings settings) {
+        this(settings, null);
+    }
+
+    //Converts single images in parallel row bands on the given pool, or serially if it is null
+    public ImageToChars(Settings settings, ForkJoinPool pool) {
+        this(settings, pool, null);
+    }
+
+    //Reuses luminance grids and finished outputs of the cache, if one is given
+    public ImageToChars(Settings settings, ForkJoinPool pool, ConversionCache cache) {
+        this(settings, new CharTable(Charsets.get(settings.getCharsetName())), pool, cache);
+    }
+
+    private ImageToChars(Settings settings, CharTable table, ForkJoinPool pool, ConversionCache cache) {
+        this.settings = settings.copy();
+        this.table = table;
+        this.pool = pool;
+        this.cache = cache;
+    }
+
+    public Settings getSettings() {
+        return settings.copy();
+    }
+
+    public Conversion convert(File imageFile) throws IOException {
+        return convert(imageFile, ProgressListener.NONE);
+    }
+
+    public Conversion convert(File imageFile, ProgressListener listener) throws IOException {
+        return convert(imageFile, CharGrid::new, listener);
+    }
+
+    //Streams the rows into the sink opened once the output size is known
+    public Conversion convert(File imageFile, Output output, ProgressListener listener) throws IOException {
+        return convert(imageFile, output, listener, new StageMetrics(imageFile.getPath()));
+    }
+
+    //Records time, allocations and pixels of every stage into metrics
+    public Conversion convert(File imageFile, Output output, ProgressListener listener, StageMetrics metrics) throws IOException {
+        long startTime = System.nanoTime();
+        //Streaming bounds memory by the strip size, a cached grid of the whole image would undo that
+        if (cache != null && !settings.isStreaming() && settings.getMatching() == Matching.BRIGHTNESS && !isColor())
+            return convertCached(imageFile, output, startTime, listener, metrics);
+        if (settings.isStreaming())
+            return convertStreaming(imageFile, output, startTime, listener, metrics);
+
+        //Loading Image
+        StageMetrics.Span decode = metrics.start(Stage.DECODE);
+        BufferedImage rawImg;
+        try {
+            rawImg = ImageIO.read(imageFile);
+        } finally {
+            decode.end();
+        }
+        if (rawImg == null)
+            throw new IOException("Unsupported image format: " + imageFile.getName());
+        checkInterrupted(Thread.currentThread());
+        metrics.addPixels(Stage.DECODE, (long) rawImg.getWidth() * rawImg.getHeight());
+
+        return convert(imageFile, rawImg, output, startTime, listener, metrics);
+    }
+
+    public Conversion convert(File imageFile, BufferedImage rawImg, long startTime, ProgressListener listener) {
+        try {
+            return convert(imageFile, rawImg, CharGrid::new, startTime, listener);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public Conversion convert(File imageFile, BufferedImage rawImg, Output output, long startTime, ProgressListener listener) throws IOException {
+        return convert(imageFile, rawImg, output, startTime, listener, new StageMetrics(imageFile.getPath()));
+    }
+
+    private Conversion convert(File imageFile, BufferedImage rawImg, Output output, long startTime, ProgressListener listener, StageMetrics metrics) throws IOException {
+        if (settings.getColumns() > 0 || settings.getMatching() == Matching.SHAPE)
+            return convertResampled(imageFile, rawImg, output, startTime, listener, metrics);
+
+        StageMetrics.Span scale = metrics.start(Stage.SCALE);
+        BufferedImage img;
+        try {
+            img = scale(rawImg);
+        } finally {
+            scale.end();
+        }
+        if (img != rawImg)
+            metrics.addPixels(Stage.SCALE, (long) img.getWidth() * img.getHeight());
+        checkInterrupted(Thread.currentThread());
+
+        RowSink sink = output.open(img.getWidth(), img.getHeight());
+        StageMetrics.Span map = metrics.start(Stage.MAP);
+        try {
+            map(img, sink, listener);
+        } finally {
+            map.end();
+        }
+        metrics.addPixels(Stage.MAP, (long) img.getWidth() * img.getHeight());
+        return new Conversion(imageFile, settings, rawImg.getWidth(), rawImg.getHeight(), img.getWidth(), img.getHeight(), grid(sink), startTime);
+    }
+
+    //The luminance grid only depends on the image and the sizing settings, so a new charset just maps it again.
+    //A miss already counted its pixels while building the grid, only a hit adds the pixels of the grid
+    private Conversion convertCached(File imageFile, Output output, long startTime, ProgressListener listener, StageMetrics metrics) throws IOException {
+        String key = ConversionCache.hash(ConversionCache.hash(imageFile) + luminanceKey());
+        Conversion luminance = cache.getLuminance(key);
+        boolean hit = luminance != null;
+        if (!hit) {
+            //Dithering is applied when the grid is mapped to chars, the grid itself keeps the plain luminance
+            Settings luminanceSettings = settings.copy().setDithering(Dithering.NONE);
+            luminance = new ImageToChars(luminanceSettings, LUMINANCE_TABLE, pool, null).convert(imageFile, CharGrid::new, listener, metrics);
+            cache.putLuminance(key, luminance);
+        }
+
+        CharGrid lum = luminance.getGrid();
+        int width = lum.getWidth(), height = lum.getHeight();
+        RowSink sink = output.open(width, height);
+        StageMetrics.Span map = metrics.start(Stage.MAP);
+        try {
+            map(new LuminanceRaster(lum), sink, listener);
+        } finally {
+            map.end();
+        }
+        if (hit)
+            metrics.addPixels(Stage.MAP, (long) width * height);
+        return new Conversion(imageFile, settings, luminance.getRawWidth(), luminance.getRawHeight(), width, height, grid(sink), startTime);
+    }
+
+    //Settings that change the luminance grid
+    private String luminanceKey() {
+        return String.join("\n", String.valueOf(settings.getFontName()), settings.getScaling().name(), Integer.toString(settings.getColumns()),
+                Boolean.toString(settings.isStreaming()), Integer.toString(settings.getSubsampling()));
+    }
+
+    //Settings that change the text of an output, without the footer
+    private String outputKey() {
+        return String.join("\n", luminanceKey(), settings.getCharsetName(), settings.getEncoding().name(),
+                settings.getColor().name(), settings.getMatching().name(), settings.getDithering().name());
+    }
+
+    private static CharGrid grid(RowSink sink) {
+        return sink instanceof CharGrid ? (CharGrid) sink : null;
+    }
+
+    //Averages the source pixels of every cell straight into the char grid, without an intermediate image.
+    //Resampling happens while mapping, so it is counted as part of the map stage
+    private Conversion convertResampled(File imageFile, BufferedImage rawImg, Output output, long startTime, ProgressListener listener, StageMetrics metrics) throws IOException {
+        LuminanceRaster raster = new LuminanceRaster(rawImg);
+        int[] size = outputSize(raster.getWidth(), raster.getHeight());
+        RowSink sink = output.open(size[0], size[1]);
+        RowResampler resampler = resampler(raster.getWidth(), raster.getHeight(), size[0], size[1], sink, listener);
+
+        StageMetrics.Span map = metrics.start(Stage.MAP);
+        try {
+            int[] values = new int[raster.getWidth()];
+            for (int y = 0; y < raster.getHeight(); y++) {
+                checkInterrupted(Thread.currentThread());
+                read(raster, y, values);
+                resampler.push(values);
+            }
+        } finally {
+            map.end();
+        }
+        metrics.addPixels(Stage.MAP, (long) raster.getWidth() * raster.getHeight());
+        return new Conversion(imageFile, settings, rawImg.getWidth(), rawImg.getHeight(), size[0], size[1], grid(sink), startTime);
+    }
+
+    //Decodes, scales and maps strip by strip, so memory is bounded by the strip size instead of the image size
+    private Conversion convertStreaming(File imageFile, Output output, long startTime, ProgressListener listener, StageMetrics metrics) throws IOException {
+        StageMetrics.Span open = metrics.start(Stage.DECODE);
+        StripDecoder decoder;
+        try {
+            decoder = new StripDecoder(imageFile, settings.getSubsampling(), settings.getStripRows());
+        } finally {
+            open.end();
+        }
+
+        try (decoder) {
+            int srcWidth = decoder.getWidth();
+            int srcHeight = decoder.getHeight();
+            int[] size = outputSize(srcWidth, srcHeight);
+            int dstWidth = size[0];
+            int dstHeight = size[1];
+
+            RowSink sink = output.open(dstWidth, dstHeight);
+            RowResampler resampler = resampler(srcWidth, srcHeight, dstWidth, dstHeight, sink, listener);
+
+            StageMetrics.Span map = metrics.start(Stage.MAP);
+            try {
+                int[] values = new int[srcWidth];
+                while (true) {
+                    StageMetrics.Span decode = metrics.start(Stage.DECODE);
+                    BufferedImage strip;
+                    try {
+                        strip = decoder.next();
+                    } finally {
+                        decode.end();
+                    }
+                    if (strip == null)
+                        break;
+
+                    LuminanceRaster raster = new LuminanceRaster(strip);
+                    for (int y = 0; y < decoder.getStripRows(); y++) {
+                        checkInterrupted(Thread.currentThread());
+                        read(raster, y, values);
+                        resampler.push(values);
+                    }
+                }
+            } finally {
+                map.end();
+            }
+            metrics.addPixels(Stage.DECODE, (long) srcWidth * srcHeight);
+            metrics.addPixels(Stage.MAP, (long) srcWidth * srcHeight);
+            return new Conversion(imageFile, settings, decoder.getRawWidth(), decoder.getRawHeight(), dstWidth, dstHeight, grid(sink), startTime);
+        }
+    }
+
+    //Size of the char grid for a source of the given size when resampling with a box filter
+    public int[] outputSize(int srcWidth, int srcHeight) {
+        int columns = settings.getColumns();
+        //One char per scaled pixel would leave shape matching nothing but flat cells, so every char covers a glyph cell of source pixels
+        if (columns <= 0 && settings.getMatching() == Matching.SHAPE)
+            columns = Math.max(1, srcWidth / GlyphIndex.CELL_WIDTH);
+        if (columns > 0) {
+            double aspect = settings.getScaling() == Scaling.NONE ? 1 : scaleFactor(settings.getFontName(), Scaling.HEIGHT);
+            return new int[]{columns, Math.max(1, (int) Math.round(srcHeight * aspect * columns / srcWidth))};
+        }
+
+        boolean width = settings.getScaling() == Scaling.WIDTH;
+        boolean height = settings.getScaling() == Scaling.HEIGHT;
+        double scale = scaleFactor(settings.getFontName(), settings.getScaling());
+        return new int[]{Math.max(1, (int) (srcWidth * (width ? scale : 1))), Math.max(1, (int) (srcHeight * (height ? scale : 1)))};
+    }
+
+    //Conversions are cancelled by interrupting the thread that started them, which is checked once per row
+    static void checkInterrupted(Thread thread) throws InterruptedIOException {
+        if (thread.isInterrupted())
+            throw new InterruptedIOException("Conversion cancelled");
+    }
+
+    private boolean isColor() {
+        return settings.getColor() != ColorMode.NONE;
+    }
+
+    //Packed RGB when converting in color, luminance otherwise
+    private void read(LuminanceRaster raster, int y, int[] values) {
+        if (isColor())
+            raster.rgbRow(y, values);
+        else
+            raster.row(y, values);
+    }
+
+    //Shape matching resamples to 8x16 pixels per char and matches whole cells against the glyphs of the font
+    private RowResampler resampler(int srcWidth, int srcHeight, int dstWidth, int dstHeight, RowSink sink, ProgressListener listener) {
+        if (settings.getMatching() == Matching.SHAPE) {
+            GlyphIndex index = GlyphIndex.of(settings.getFontName(), table.getCharset());
+            ShapeMapper mapper = new ShapeMapper(index, table, isColor(), dstWidth, dstHeight, sink, listener);
+            return new RowResampler(srcWidth, srcHeight, dstWidth * GlyphIndex.CELL_WIDTH, dstHeight * GlyphIndex.CELL_HEIGHT, isColor(), mapper);
+        }
+
+        RowMapper mapper = new RowMapper(table, isColor(), dstWidth, settings.getDithering());
+        return new RowResampler(srcWidth, srcHeight, dstWidth, dstHeight, isColor(), (y, values) -> {
+            mapper.map(y, values, sink);
+            if (listener != ProgressListener.NONE)
+                listener.progress(y + 1, dstHeight);
+        });
+    }
+
+    //Scales the image so that one char per pixel keeps the aspect ratio of the selected font
+    public BufferedImage scale(BufferedImage rawImg) {
+        if (settings.getScaling() == Scaling.NONE)
+            return rawImg;
+
+        boolean width = settings.getScaling() == Scaling.WIDTH;
+        double scale = scaleFactor(settings.getFontName(), settings.getScaling());
+
+        BufferedImage img = new BufferedImage((int) (rawImg.getWidth() * (width ? scale : 1)), (int) (rawImg.getHeight() * (width ? 1 : scale)),
+                BufferedImage.TYPE_INT_ARGB);
+        AffineTransform at = AffineTransform.getScaleInstance(width ? scale : 1, width ? 1 : scale);
+        if (pool == null || img.getHeight() <= SCALE_BAND_ROWS)
+            return new AffineTransformOp(at, AffineTransformOp.TYPE_BICUBIC).filter(rawImg, img);
+
+        //Every band samples the whole source, so band edges interpolate exactly like a single pass.
+        //The source is converted once up front, otherwise each band would convert it again
+        BufferedImage src = compatible(rawImg, img);
+        List<ForkJoinTask<?>> bands = new ArrayList<>();
+        for (int y = 0; y < img.getHeight(); y += SCALE_BAND_ROWS) {
+            BufferedImage band = img.getSubimage(0, y, img.getWidth(), Math.min(SCALE_BAND_ROWS, img.getHeight() - y));
+            AffineTransform bandAt = AffineTransform.getTranslateInstance(0, -y);
+            bandAt.concatenate(at);
+            bands.add(pool.submit(() -> new AffineTransformOp(bandAt, AffineTransformOp.TYPE_BICUBIC).filter(src, band)));
+        }
+        bands.forEach(ForkJoinTask::join);
+        return img;
+    }
+
+    private static BufferedImage compatible(BufferedImage img, BufferedImage target) {
+        if (img.getType() == target.getType())
+            return img;
+
+        BufferedImage converted = new BufferedImage(img.getWidth(), img.getHeight(), target.getType());
+        //Same conversion AffineTransformOp applies itself when the color spaces differ (e.g. grey scale sources)
+        if (img.getColorModel().getColorSpace().getType() != target.getColorModel().getColorSpace().getType())
+            return new ColorConvertOp(null).filter(img, converted);
+
+        Graphics2D g = converted.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+        return converted;
+    }
+
+    public static double scaleFactor(String fontName, Scaling scaling) {
+        switch (scaling) {
+            case WIDTH:
+                return 1 / FontCache.aspect(fontName);
+            case HEIGHT:
+                return FontCache.aspect(fontName);
+            default:
+                return 1;
+        }
+    }
+
+    // Transforming RGB to Brightness and storing the corresponding Character
+    public CharGrid map(BufferedImage img) {
+        return map(img, ProgressListener.NONE);
+    }
+
+    public CharGrid map(BufferedImage img, ProgressListener listener) {
+        CharGrid grid = new CharGrid(img.getWidth(), img.getHeight());
+        try {
+            map(img, grid, listener);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return grid;
+    }
+
+    //Reports progress in rows, rows only arrive out of order if the sink allows it.
+    //Color runs and Floyd-Steinberg error continue from one row into the next, so both are always mapped in order
+    public void map(BufferedImage img, RowSink sink, ProgressListener listener) throws IOException {
+        map(new LuminanceRaster(img), sink, listener);
+    }
+
+    private void map(LuminanceRaster raster, RowSink sink, ProgressListener listener) throws IOException {
+        int imgWidth = raster.getWidth();
+        int imgHeight = raster.getHeight();
+        boolean color = isColor() && sink instanceof ColorRowSink;
+        if (pool != null && !color && settings.getDithering() != Dithering.FLOYD_STEINBERG) {
+            //Without random access, convert in parallel into memory, then hand the rows over in order
+            RowSink target = sink.isRandomAccess() ? sink : new CharGrid(imgWidth, imgHeight);
+            try {
+                pool.invoke(new BandMapper(raster, table, settings.getDithering(), target, listener, Thread.currentThread()));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            if (target != sink)
+                ((CharGrid) target).writeTo(sink);
+            return;
+        }
+
+        RowMapper mapper = new RowMapper(table, color, imgWidth, settings.getDithering());
+        for (int y = 0; y < imgHeight; y++) {
+            checkInterrupted(Thread.currentThread());
+            mapper.map(raster, y, sink);
+            if (listener != ProgressListener.NONE)
+                listener.progress(y + 1, imgHeight);
+        }
+    }
+
+    //Images by extension, leaving out rendered char art so a second run does not convert its own output
+    public static boolean isImage(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if (name.endsWith(PNG_EXTENSION))
+            return false;
+        for (String ext : IMAGE_EXTENSIONS)
+            if (name.endsWith("." + ext))
+                return true;
+        return false;
+    }
+
+    public File outputFile(File imageFile) {
+        File destination = settings.getDestination() != null ? settings.getDestination() : imageFile.getAbsoluteFile().getParentFile();
+        return new File(destination, imageFile.getName().concat(extension()));
+    }
+
+    //Output of one of several widths
+    public File outputFile(File imageFile, int width) {
+        File newFile = outputFile(imageFile);
+        return new File(newFile.getParentFile(), imageFile.getName() + "." + width + extension());
+    }
+
+    private String extension() {
+        switch (settings.getFormat()) {
+            case PACKED:
+                return ".chars";
+            case PNG:
+                return PNG_EXTENSION;
+            default:
+                return ".txt";
+        }
+    }
+
+    //Rows of parallel conversions go straight into a mapped file when the charset allows it
+    private TextSink openSink(File file, File copy, int width, int height) throws IOException {
+        if (settings.getFormat() == OutputFormat.PACKED) {
+            if (isColor())
+                throw new IllegalArgumentException("Packed output has no color");
+            return new PackedTextSink(file, table.getCharset(), width, height);
+        }
+        if (settings.getFormat() == OutputFormat.PNG)
+            return new ImageTextSink(file, settings.getFontName(), table.getCharset(), settings.getGlyphHeight(), width, height, isColor(), pool);
+        if (copy != null || isColor()) {
+            TextSink sink = new ChannelTextSink(file, settings.getEncoding());
+            if (copy != null)
+                sink = new TeeTextSink(sink, new ChannelTextSink(copy, settings.getEncoding()));
+            return isColor() ? new AnsiTextSink(sink, settings.getColor()) : sink;
+        }
+        if (pool != null && MappedTextSink.supports(table.getCharset(), settings.getEncoding()))
+            return new MappedTextSink(file, settings.getEncoding(), width, height);
+        return new ChannelTextSink(file, settings.getEncoding());
+    }
+
+    // Writing char art and processing-specifications to TXT file
+    public File write(Conversion conversion) throws IOException {
+        File newFile = outputFile(conversion.getImageFile());
+        CharGrid grid = conversion.getGrid();
+        try (TextSink sink = openSink(newFile, null, grid.getWidth(), grid.getHeight())) {
+            grid.writeTo(sink);
+            sink.footer(footer(conversion));
+        }
+        return newFile;
+    }
+
+    public File save(File imageFile) throws IOException {
+        return save(imageFile, ProgressListener.NONE);
+    }
+
+    public File save(File imageFile, ProgressListener listener) throws IOException {
+        return save(imageFile, listener, new StageMetrics(imageFile.getPath()));
+    }
+
+    //Converts and writes row by row without holding the whole char art in memory.
+    //The stage metrics are emitted to Flight Recorder and, if enabled, written next to the output
+    public File save(File imageFile, ProgressListener listener, StageMetrics metrics) throws IOException {
+        File newFile = outputFile(imageFile);
+        //Finished outputs are only looked up and kept if the cache has a directory, and only as text
+        String key = cache != null && cache.getDirectory() != null && settings.getFormat() == OutputFormat.TEXT
+                ? ConversionCache.hash(ConversionCache.hash(imageFile) + outputKey()) : null;
+        File cached = key != null ? cache.getOutput(key) : null;
+        if (cached != null) {
+            saveCached(imageFile, newFile, key, cached, listener, metrics);
+        } else {
+            File copy = key != null ? cache.newOutputFile(key) : null;
+            TextSink[] sink = new TextSink[1];
+            try {
+                Conversion conversion = convert(imageFile, (width, height) -> sink[0] = timed(openSink(newFile, copy, width, height), metrics), listener, metrics);
+                StageMetrics.Span write = metrics.start(Stage.WRITE);
+                try {
+                    sink[0].footer(footer(conversion));
+                    sink[0].close();
+                } finally {
+                    write.end();
+                }
+                metrics.addPixels(Stage.WRITE, (long) conversion.getWidth() * conversion.getHeight());
+                if (copy != null)
+                    cache.putOutput(key, copy, conversion);
+            } catch (IOException | RuntimeException ex) {
+                //Closing fails as well when the channel was closed by an interrupt, the partial file is deleted anyway
+                if (sink[0] != null) {
+                    try {
+                        sink[0].close();
+                    } catch (IOException closeEx) {
+                        ex.addSuppressed(closeEx);
+                    }
+                    newFile.delete();
+                }
+                throw ex;
+            } finally {
+                if (copy != null)
+                    copy.delete();
+            }
+        }
+
+        metrics.commit();
+        if (settings.isMetrics())
+            Files.writeString(metricsFile(imageFile).toPath(), metrics.toJson(), StandardCharsets.UTF_8);
+        return newFile;
+    }
+
+    //Decodes once and writes one output per width, each resampled from the nearest level of a luminance pyramid.
+    //The outputs are written at the same time on the pool, or the common pool without one; progress is reported in outputs
+    public List<File> saveWidths(File imageFile, int[] widths, ProgressListener listener) throws IOException {
+        if (isColor() || settings.getMatching() == Matching.SHAPE)
+            throw new IllegalArgumentException("Several widths work neither with color nor with shape matching");
+        //Equal widths would write the same file from two tasks at once
+        if (Arrays.stream(widths).distinct().count() != widths.length)
+            throw new IllegalArgumentException("Widths must be distinct: " + Arrays.toString(widths));
+        long startTime = System.nanoTime();
+
+        BufferedImage rawImg = ImageIO.read(imageFile);
+        if (rawImg == null)
+            throw new IOException("Unsupported image format: " + imageFile.getName());
+        checkInterrupted(Thread.currentThread());
+        int rawWidth = rawImg.getWidth(), rawHeight = rawImg.getHeight();
+
+        ImageToChars[] engines = new ImageToChars[widths.length];
+        int[][] sizes = new int[widths.length][];
+        int minWidth = Integer.MAX_VALUE, minHeight = Integer.MAX_VALUE;
+        for (int i = 0; i < widths.length; i++) {
+            engines[i] = new ImageToChars(settings.copy().setColumns(widths[i]), table, pool, null);
+            sizes[i] = engines[i].outputSize(rawWidth, rawHeight);
+            minWidth = Math.min(minWidth, sizes[i][0]);
+            minHeight = Math.min(minHeight, sizes[i][1]);
+        }
+        //Levels of at least twice the output size keep every cell averaged over whole pixels, closer to a resample of the full image
+        LuminancePyramid pyramid = new LuminancePyramid(new LuminanceRaster(rawImg), 2 * minWidth, 2 * minHeight);
+        rawImg = null;
+
+        Thread owner = Thread.currentThread();
+        ForkJoinPool outputPool = pool != null ? pool : ForkJoinPool.commonPool();
+        AtomicInteger done = new AtomicInteger();
+        File[] files = new File[widths.length];
+        List<ForkJoinTask<?>> outputs = new ArrayList<>();
+        for (int i = 0; i < widths.length; i++) {
+            int index = i;
+            outputs.add(outputPool.submit(() -> {
+                int[] size = sizes[index];
+                try {
+                    files[index] = engines[index].saveLevel(imageFile, pyramid.nearest(2 * size[0], 2 * size[1]), rawWidth, rawHeight, size, startTime, owner);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                if (listener != ProgressListener.NONE)
+                    listener.progress(done.incrementAndGet(), widths.length);
+            }));
+        }
+
+        //All outputs are awaited before a failure is reported, so none is still being written afterwards
+        RuntimeException failure = null;
+        for (ForkJoinTask<?> output : outputs) {
+            try {
+                output.join();
+            } catch (RuntimeException ex) {
+                if (failure == null)
+                    failure = ex;
+                else
+                    failure.addSuppressed(ex);
+            }
+        }
+        if (failure instanceof UncheckedIOException)
+            throw ((UncheckedIOException) failure).getCause();
+        if (failure != null)
+            throw failure;
+        return List.of(files);
+    }
+
+    //Resamples a pyramid level to the size of this engine's columns and writes it like save()
+    private File saveLevel(File imageFile, LuminancePyramid.Level level, int rawWidth, int rawHeight, int[] size, long startTime, Thread owner) throws IOException {
+        File newFile = outputFile(imageFile, settings.getColumns());
+        TextSink sink = null;
+        try {
+            TextSink levelSink = sink = openSink(newFile, null, size[0], size[1]);
+            RowMapper mapper = new RowMapper(table, false, size[0], settings.getDithering());
+            RowResampler resampler = new RowResampler(level.getWidth(), level.getHeight(), size[0], size[1], (y, values) -> mapper.map(y, values, levelSink));
+            int[] values = new int[level.getWidth()];
+            for (int y = 0; y < level.getHeight(); y++) {
+                checkInterrupted(owner);
+                level.row(y, values);
+                resampler.push(values);
+            }
+            sink.footer(footer(new Conversion(imageFile, settings, rawWidth, rawHeight, size[0], size[1], null, startTime)));
+        } catch (IOException | RuntimeException ex) {
+            if (sink != null) {
+                try {
+                    sink.close();
+                } catch (IOException closeEx) {
+                    ex.addSuppressed(closeEx);
+                }
+                newFile.delete();
+            }
+            throw ex;
+        }
+
+        try {
+            sink.close();
+        } catch (IOException ex) {
+            newFile.delete();
+            throw ex;
+        }
+        return newFile;
+    }
+
+    //Copies the stored text and writes a new footer after it
+    private void saveCached(File imageFile, File newFile, String key, File cached, ProgressListener listener, StageMetrics metrics) throws IOException {
+        long startTime = System.nanoTime();
+        StageMetrics.Span write = metrics.start(Stage.WRITE);
+        try {
+            Conversion conversion = cache.getOutputConversion(key, imageFile, settings, startTime);
+            Files.copy(cached.toPath(), newFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            try (TextSink sink = new ChannelTextSink(newFile, settings.getEncoding(), true)) {
+                if (isColor())
+                    sink.footer(AnsiTextSink.RESET);
+                sink.footer(footer(conversion));
+            }
+            metrics.addPixels(Stage.WRITE, (long) conversion.getWidth() * conversion.getHeight());
+            if (listener != ProgressListener.NONE)
+                listener.progress(conversion.getHeight(), conversion.getHeight());
+        } catch (IOException | RuntimeException ex) {
+            newFile.delete();
+            throw ex;
+        } finally {
+            write.end();
+        }
+    }
+
+    //Rows of a random access sink are written by the pool threads while mapping, so they stay part of the map stage
+    private static TextSink timed(TextSink sink, StageMetrics metrics) {
+        return sink.isRandomAccess() ? sink : new TimedTextSink(sink, metrics);
+    }
+
+    public File metricsFile(File imageFile) {
+        File newFile = outputFile(imageFile);
+        return new File(newFile.getParentFile(), imageFile.getName().concat(".metrics.json"));
+    }
+
+    public String footer(Conversion conversion) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n<INFO>\n");
+        sb.append(String.format("version: %s\n", VERSION));
+        sb.append("author: Memphis\n");
+        sb.append("instagram: @memphis_pc\n");
+        sb.append("discord: Memphis#3543\n");
+        sb.append("github: https://github.com/iNxmi\n");
+        sb.append("website: https://nami.mhergh.com\n");
+
+        sb.append("\n<SETTINGS>\n");
+        sb.append(String.format("filePathTextField: %s\n", conversion.getImageFile().getAbsolutePath()));
+        sb.append(String.format("destinationPathTextField: %s\n", outputFile(conversion.getImageFile()).getParent()));
+        sb.append(String.format("fontNameComboBox: %s\n", FontCache.family(settings.getFontName())));
+        sb.append(String.format("widthScalingRadioButton: %s\n", settings.getScaling() == Scaling.WIDTH));
+        sb.append(String.format("heightScalingRadioButton: %s\n", settings.getScaling() == Scaling.HEIGHT));
+        sb.append(String.format("noneScalingRadioButton: %s\n", settings.getScaling() == Scaling.NONE));
+        sb.append(String.format("charset: %s\n", settings.getCharsetName()));
+        sb.append(String.format("columns: %s\n", settings.getColumns()));
+        sb.append(String.format("color: %s\n", settings.getColor()));
+        sb.append(String.format("matching: %s\n", settings.getMatching()));
+        sb.append(String.format("dithering: %s\n", settings.getDithering()));
+        sb.append(String.format("format: %s\n", settings.getFormat()));
+
+        sb.append("\n<PROCESSING-SPECS>\n");
+        sb.append(String.format("rawImgWidth: %spx\n", conversion.getRawWidth()));
+        sb.append(String.format("rawImgHeight: %spx\n", conversion.getRawHeight()));
+        sb.append(String.format("scaledImgWidth: %spx\n", conversion.getWidth()));
+        sb.append(String.format("scaledImgHeight: %spx\n", conversion.getHeight()));
+        sb.append(String.format("processingTime: %sms", (System.nanoTime() - conversion.getStartTime()) / 1000000d));
+        return sb.toString();
+    }
+
+}
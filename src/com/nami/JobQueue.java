@@ -0,0 +1,144 @@
+package com.nami;
+
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+//Converts queued images on a fixed number of threads, every job keeps the settings it was queued with and can be cancelled on its own
+public class JobQueue {
+
+    //Jobs split their rows over the shared pool, so half the processors are enough to keep decoding and mapping overlapped
+    public static final int DEFAULT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    //Progress updates per job and second passed to the listener
+    private static final int PROGRESS_RATE = 10;
+
+    public enum State {QUEUED, RUNNING, DONE, FAILED, CANCELLED}
+
+    public class Job {
+        private final File imageFile;
+        private final Settings settings;
+        private volatile State state = State.QUEUED;
+        private volatile long done, total;
+        private volatile String message = "";
+        private volatile Future<?> future;
+
+        private Job(File imageFile, Settings settings) {
+            this.imageFile = imageFile;
+            this.settings = settings;
+        }
+
+        public File getImageFile() {
+            return imageFile;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public long getDone() {
+            return done;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        //Output file once done, error once failed
+        public String getMessage() {
+            return message;
+        }
+
+        public boolean isFinished() {
+            return state == State.DONE || state == State.FAILED || state == State.CANCELLED;
+        }
+
+        //Queued jobs are dropped, running ones are interrupted and stop at the next row
+        public void cancel() {
+            if (isFinished())
+                return;
+            future.cancel(true);
+            synchronized (this) {
+                if (state == State.QUEUED)
+                    update(State.CANCELLED, "");
+            }
+        }
+
+        private void progress(long done, long total) {
+            this.done = done;
+            this.total = total;
+            listener.accept(this);
+        }
+
+        private void update(State state, String message) {
+            this.state = state;
+            this.message = message;
+            listener.accept(this);
+        }
+
+        private void run() {
+            synchronized (this) {
+                if (state != State.QUEUED)
+                    return;
+                update(State.RUNNING, "");
+            }
+
+            try {
+                File newFile = new ImageToChars(settings, pool, cache).save(imageFile, ProgressListener.throttled(this::progress, PROGRESS_RATE));
+                update(State.DONE, newFile.getAbsolutePath());
+            } catch (Exception | OutOfMemoryError ex) {
+                //Interrupted channel writes fail with a ClosedByInterruptException instead
+                if (ex instanceof InterruptedIOException || Thread.currentThread().isInterrupted())
+                    update(State.CANCELLED, "");
+                else
+                    update(State.FAILED, String.valueOf(ex.getMessage()));
+            }
+        }
+
+        @Override
+        public String toString() {
+            String name = imageFile.getName();
+            switch (state) {
+                case RUNNING:
+                    return String.format("%s - row %s/%s", name, done, total);
+                case DONE:
+                    return name + " - done";
+                case FAILED:
+                    return String.format("%s - failed: %s", name, message);
+                default:
+                    return String.format("%s - %s", name, state.name().toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private final ExecutorService executor;
+    private final ForkJoinPool pool;
+    private final ConversionCache cache;
+    private final Consumer<Job> listener;
+
+    //The listener is called from the worker threads whenever a job changes state or makes progress
+    public JobQueue(int threads, ForkJoinPool pool, ConversionCache cache, Consumer<Job> listener) {
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pool = pool;
+        this.cache = cache;
+        this.listener = listener;
+    }
+
+    //The settings are copied, so changing them afterwards does not affect the job
+    public Job submit(File imageFile, Settings settings) {
+        Job job = new Job(imageFile, settings.copy());
+        job.future = executor.submit(job::run);
+        return job;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.nami;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Luminance of an image at full size and at every halving below it, each level a 2x2 box average of the one above.
+//Odd sizes round up, the last column or row is then averaged with itself
+public class LuminancePyramid {
+
+    public static final class Level {
+        private final int width, height;
+        private final byte[] lum;
+
+        private Level(int width, int height, byte[] lum) {
+            this.width = width;
+            this.height = height;
+            this.lum = lum;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        //Fills values[0..width) with the luminance (0-255) of row y
+        public void row(int y, int[] values) {
+            int i = y * width;
+            for (int x = 0; x < width; x++)
+                values[x] = lum[i + x] & 0xFF;
+        }
+    }
+
+    private final List<Level> levels = new ArrayList<>();
+
+    //Halves until the next level would be narrower than minWidth or shorter than minHeight
+    public LuminancePyramid(LuminanceRaster raster, int minWidth, int minHeight) {
+        int width = raster.getWidth(), height = raster.getHeight();
+        byte[] lum = new byte[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            raster.row(y, row);
+            for (int x = 0; x < width; x++)
+                lum[y * width + x] = (byte) row[x];
+        }
+        Level level = new Level(width, height, lum);
+        levels.add(level);
+
+        while ((level.width + 1) / 2 >= Math.max(1, minWidth) && (level.height + 1) / 2 >= Math.max(1, minHeight)
+                && (level.width > 1 || level.height > 1)) {
+            level = reduce(level);
+            levels.add(level);
+        }
+    }
+
+    private static Level reduce(Level src) {
+        int width = (src.width + 1) / 2, height = (src.height + 1) / 2;
+        byte[] lum = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            int top = 2 * y * src.width;
+            int bottom = Math.min(2 * y + 1, src.height - 1) * src.width;
+            for (int x = 0; x < width; x++) {
+                int left = 2 * x, right = Math.min(2 * x + 1, src.width - 1);
+                int sum = (src.lum[top + left] & 0xFF) + (src.lum[top + right] & 0xFF)
+                        + (src.lum[bottom + left] & 0xFF) + (src.lum[bottom + right] & 0xFF);
+                lum[y * width + x] = (byte) ((sum + 2) >> 2);
+            }
+        }
+        return new Level(width, height, lum);
+    }
+
+    public int getLevelCount() {
+        return levels.size();
+    }
+
+    public Level getLevel(int i) {
+        return levels.get(i);
+    }
+
+    //Smallest level that is still at least width x height, so resampling it never repeats pixels; the full size otherwise
+    public Level nearest(int width, int height) {
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            Level level = levels.get(i);
+            if (level.width >= width && level.height >= height)
+                return level;
+        }
+        return levels.get(0);
+    }
+
+}
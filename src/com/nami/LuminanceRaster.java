@@ -0,0 +1,191 @@
+package com.nami;
+
+import java.awt.image.*;
+
+//Reads rows of 8-bit luminance or packed RGB straight from the backing array of a BufferedImage, or from a grid of luminance chars
+public class LuminanceRaster {
+
+    //Weights of 0.21 R + 0.72 G + 0.07 B times CharTable.FINE_SCALE, which makes them exact
+    private static final int R = 21, G = 72, B = 7;
+
+    private enum Layout {INT_RGB, BYTE_RGB, BYTE_LOOKUP, LUMINANCE, GENERIC}
+
+    private final BufferedImage img;
+    private final int width, height;
+    private final Layout layout;
+
+    private int[] ints;
+    private byte[] bytes;
+    private char[] chars;
+    private int offset, scanlineStride, pixelStride;
+    private int redOffset, greenOffset, blueOffset;
+    private int[] lookup, rgbLookup;
+
+    public LuminanceRaster(BufferedImage img) {
+        this.img = img;
+        this.width = img.getWidth();
+        this.height = img.getHeight();
+        this.layout = inspect();
+    }
+
+    //Every char of the grid is a fine luminance, as in the grids ImageToChars caches; RGB rows are grey
+    LuminanceRaster(CharGrid luminance) {
+        this.img = null;
+        this.width = luminance.getWidth();
+        this.height = luminance.getHeight();
+        this.layout = Layout.LUMINANCE;
+        this.chars = luminance.getChars();
+    }
+
+    public static int luminance(int rgb) {
+        return (fineLuminance(rgb) + CharTable.FINE_SCALE / 2) / CharTable.FINE_SCALE;
+    }
+
+    public static int fineLuminance(int rgb) {
+        return R * ((rgb >> 16) & 0xFF) + G * ((rgb >> 8) & 0xFF) + B * (rgb & 0xFF);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    //Fills lum[0..width) with the luminance (0-255) of row y
+    public void row(int y, int[] lum) {
+        fineRow(y, lum);
+        for (int x = 0; x < width; x++)
+            lum[x] = (lum[x] + CharTable.FINE_SCALE / 2) / CharTable.FINE_SCALE;
+    }
+
+    //Fills fine[0..width) with the fine luminance (0-CharTable.FINE_MAX) of row y
+    public void fineRow(int y, int[] fine) {
+        switch (layout) {
+            case INT_RGB: {
+                int i = offset + y * scanlineStride;
+                for (int x = 0; x < width; x++)
+                    fine[x] = fineLuminance(ints[i + x]);
+                break;
+            }
+            case BYTE_RGB: {
+                int i = offset + y * scanlineStride;
+                for (int x = 0; x < width; x++, i += pixelStride)
+                    fine[x] = R * (bytes[i + redOffset] & 0xFF) + G * (bytes[i + greenOffset] & 0xFF) + B * (bytes[i + blueOffset] & 0xFF);
+                break;
+            }
+            case BYTE_LOOKUP: {
+                int i = offset + y * scanlineStride;
+                for (int x = 0; x < width; x++, i += pixelStride)
+                    fine[x] = lookup[bytes[i] & 0xFF];
+                break;
+            }
+            case LUMINANCE: {
+                int i = y * width;
+                for (int x = 0; x < width; x++)
+                    fine[x] = chars[i + x];
+                break;
+            }
+            default: {
+                img.getRGB(0, y, width, 1, fine, 0, width);
+                for (int x = 0; x < width; x++)
+                    fine[x] = fineLuminance(fine[x]);
+            }
+        }
+    }
+
+    //Fills rgb[0..width) with the packed RGB values of row y, alpha is dropped
+    public void rgbRow(int y, int[] rgb) {
+        switch (layout) {
+            case INT_RGB: {
+                int i = offset + y * scanlineStride;
+                for (int x = 0; x < width; x++)
+                    rgb[x] = ints[i + x] & 0xFFFFFF;
+                break;
+            }
+            case BYTE_RGB: {
+                int i = offset + y * scanlineStride;
+                for (int x = 0; x < width; x++, i += pixelStride)
+                    rgb[x] = (bytes[i + redOffset] & 0xFF) << 16 | (bytes[i + greenOffset] & 0xFF) << 8 | (bytes[i + blueOffset] & 0xFF);
+                break;
+            }
+            case BYTE_LOOKUP: {
+                int i = offset + y * scanlineStride;
+                for (int x = 0; x < width; x++, i += pixelStride)
+                    rgb[x] = rgbLookup[bytes[i] & 0xFF];
+                break;
+            }
+            case LUMINANCE: {
+                int i = y * width;
+                for (int x = 0; x < width; x++)
+                    rgb[x] = (chars[i + x] + CharTable.FINE_SCALE / 2) / CharTable.FINE_SCALE * 0x010101;
+                break;
+            }
+            default: {
+                img.getRGB(0, y, width, 1, rgb, 0, width);
+                for (int x = 0; x < width; x++)
+                    rgb[x] &= 0xFFFFFF;
+            }
+        }
+    }
+
+    //Picks the fastest way to read pixels without going through getRGB for every one of them
+    private Layout inspect() {
+        WritableRaster raster = img.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer db = raster.getDataBuffer();
+        ColorModel cm = img.getColorModel();
+        if (db.getNumBanks() != 1 || cm.isAlphaPremultiplied())
+            return Layout.GENERIC;
+
+        int tx = -raster.getSampleModelTranslateX();
+        int ty = -raster.getSampleModelTranslateY();
+
+        if (db instanceof DataBufferInt && sm instanceof SinglePixelPackedSampleModel && cm instanceof DirectColorModel) {
+            DirectColorModel dcm = (DirectColorModel) cm;
+            if (dcm.getRedMask() != 0xFF0000 || dcm.getGreenMask() != 0xFF00 || dcm.getBlueMask() != 0xFF
+                    || !dcm.getColorSpace().isCS_sRGB())
+                return Layout.GENERIC;
+
+            SinglePixelPackedSampleModel sppsm = (SinglePixelPackedSampleModel) sm;
+            ints = ((DataBufferInt) db).getData();
+            scanlineStride = sppsm.getScanlineStride();
+            offset = db.getOffset() + ty * scanlineStride + tx;
+            return Layout.INT_RGB;
+        }
+
+        if (db instanceof DataBufferByte && sm instanceof PixelInterleavedSampleModel) {
+            PixelInterleavedSampleModel pism = (PixelInterleavedSampleModel) sm;
+            bytes = ((DataBufferByte) db).getData();
+            scanlineStride = pism.getScanlineStride();
+            pixelStride = pism.getPixelStride();
+            offset = db.getOffset() + ty * scanlineStride + tx * pixelStride;
+            int[] bandOffsets = pism.getBandOffsets();
+
+            //Grey scale and palette images: one byte per pixel, resolved through its color model once per value
+            if (pism.getNumBands() == 1 && sm.getSampleSize(0) == 8) {
+                lookup = new int[256];
+                rgbLookup = new int[256];
+                int size = cm instanceof IndexColorModel ? ((IndexColorModel) cm).getMapSize() : 256;
+                for (int i = 0; i < size; i++) {
+                    rgbLookup[i] = cm.getRGB(i) & 0xFFFFFF;
+                    lookup[i] = fineLuminance(rgbLookup[i]);
+                }
+                offset += bandOffsets[0];
+                return Layout.BYTE_LOOKUP;
+            }
+
+            if (cm instanceof ComponentColorModel && cm.getColorSpace().isCS_sRGB() && pism.getNumBands() >= 3
+                    && sm.getSampleSize(0) == 8 && sm.getSampleSize(1) == 8 && sm.getSampleSize(2) == 8) {
+                redOffset = bandOffsets[0];
+                greenOffset = bandOffsets[1];
+                blueOffset = bandOffsets[2];
+                return Layout.BYTE_RGB;
+            }
+        }
+
+        return Layout.GENERIC;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.nami;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+//Writes rows straight into a memory-mapped file presized to (width + 1) * height, so rows may come in any order and from any thread
+public class MappedTextSink implements TextSink {
+
+    //Mappings are split in segments of whole rows well below the 2 GB limit of a MappedByteBuffer
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final int rowBytes, rowsPerSegment;
+    private final long gridBytes;
+    private final MappedByteBuffer[] segments;
+
+    public MappedTextSink(File file, Charset charset, int width, int height) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.charset = charset;
+        this.rowBytes = width + 1;
+        this.rowsPerSegment = (int) Math.max(1, SEGMENT_BYTES / rowBytes);
+        this.gridBytes = (long) rowBytes * height;
+
+        try {
+            segments = new MappedByteBuffer[(height + rowsPerSegment - 1) / rowsPerSegment];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i * rowsPerSegment * rowBytes;
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min((long) rowsPerSegment * rowBytes, gridBytes - position));
+            }
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    //Rows can only be mapped byte for byte if every char of the charset encodes to the same single byte
+    public static boolean supports(char[] chars, Charset charset) {
+        byte[] bytes = new String(chars).getBytes(charset);
+        if (bytes.length != chars.length)
+            return false;
+        for (int i = 0; i < chars.length; i++)
+            if (chars[i] > 0x7F || bytes[i] != chars[i])
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return true;
+    }
+
+    @Override
+    public void row(int y, char[] chars, int offset, int length) {
+        MappedByteBuffer segment = segments[y / rowsPerSegment];
+        int position = (y % rowsPerSegment) * rowBytes;
+        for (int x = 0; x < length; x++)
+            segment.put(position + x, (byte) chars[offset + x]);
+        segment.put(position + length, (byte) '\n');
+    }
+
+    @Override
+    public void footer(String text) throws IOException {
+        ByteBuffer bytes = charset.encode(text);
+        long position = gridBytes;
+        while (bytes.hasRemaining())
+            position += channel.write(bytes, position);
+    }
+
+    //Dirty pages are written back by the OS like any other file write, so there is no force() here
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,5 @@
+package com.nami;
+
+public enum OutputFormat {
+    TEXT, PACKED, PNG
+}
@@ -0,0 +1,162 @@
+package com.nami;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+//Expands files written by PackedTextSink back into chars, streaming a buffer of rows at a time
+public class PackedReader implements Closeable {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java -cp Image-To-Chars.jar com.nami.PackedReader <file> [<from> <to>]",
+            "  writes the text of a packed file to standard output, with a row range only rows from (inclusive) to (exclusive)");
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final int width, height, bits, rowBytes;
+    private final char[] charset;
+    private final long dataOffset, footerOffset;
+
+    public PackedReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, PackedTextSink.HEADER_SIZE);
+            if (header.getInt() != PackedTextSink.MAGIC)
+                throw new IOException("Not a packed char file: " + file.getName());
+            int version = header.get();
+            if (version != PackedTextSink.VERSION)
+                throw new IOException("Unsupported packed char file version: " + version);
+            bits = header.get();
+            width = header.getInt();
+            height = header.getInt();
+            footerOffset = header.getLong();
+            charset = new char[header.getShort() & 0xFFFF];
+            if (charset.length == 0 || bits != PackedTextSink.bits(charset.length))
+                throw new IOException(String.format("Corrupt packed char file %s: %s bits for %s chars", file.getName(), bits, charset.length));
+            read(PackedTextSink.HEADER_SIZE, charset.length * 2).asCharBuffer().get(charset);
+
+            rowBytes = PackedTextSink.rowBytes(width, bits);
+            dataOffset = PackedTextSink.HEADER_SIZE + charset.length * 2L;
+            if (footerOffset != dataOffset + (long) rowBytes * height || footerOffset > channel.size())
+                throw new IOException("Incomplete packed char file: " + file.getName());
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public char[] getCharset() {
+        return charset.clone();
+    }
+
+    public int getBitsPerChar() {
+        return bits;
+    }
+
+    //File position of row y
+    public long rowOffset(int y) {
+        return dataOffset + (long) y * rowBytes;
+    }
+
+    //Hands rows from (inclusive) to to (exclusive) to the sink as rows 0 to to - from
+    public void readRows(int from, int to, RowSink sink) throws IOException {
+        if (from < 0 || to > height || from > to)
+            throw new IndexOutOfBoundsException(String.format("Rows %s to %s of %s", from, to, height));
+
+        int rowsPerBuffer = Math.max(1, BUFFER_SIZE / Math.max(1, rowBytes));
+        char[] chars = new char[width];
+        byte[] packed = new byte[rowBytes];
+        for (int y = from; y < to; ) {
+            int rows = Math.min(rowsPerBuffer, to - y);
+            ByteBuffer buffer = read(rowOffset(y), rows * rowBytes);
+            for (int i = 0; i < rows; i++, y++) {
+                buffer.get(packed);
+                unpack(y, packed, chars);
+                sink.row(y - from, chars, 0, width);
+            }
+        }
+    }
+
+    private void unpack(int y, byte[] packed, char[] chars) throws IOException {
+        int mask = (1 << bits) - 1;
+        long acc = 0;
+        int accBits = 0, i = 0;
+        for (int x = 0; x < width; x++) {
+            while (accBits < bits) {
+                acc = (acc << 8) | (packed[i++] & 0xFF);
+                accBits += 8;
+            }
+            accBits -= bits;
+            int index = (int) (acc >>> accBits) & mask;
+            if (index >= charset.length)
+                throw new IOException(String.format("Corrupt packed char file: index %s at row %s, column %s is outside the charset", index, y, x));
+            chars[x] = charset[index];
+        }
+    }
+
+    public String footer() throws IOException {
+        return StandardCharsets.UTF_8.decode(read(footerOffset, (int) (channel.size() - footerOffset))).toString();
+    }
+
+    //Same text the text format would have written
+    public void writeText(TextSink sink) throws IOException {
+        readRows(0, height, sink);
+        sink.footer(footer());
+    }
+
+    public void writeText(File file, Charset encoding) throws IOException {
+        try (TextSink sink = new ChannelTextSink(file, encoding)) {
+            writeText(sink);
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of packed char file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1 && args.length != 3) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try (PackedReader reader = new PackedReader(new File(args[0]));
+             TextSink out = new ChannelTextSink(Channels.newChannel(System.out), StandardCharsets.UTF_8)) {
+            if (args.length == 1)
+                reader.writeText(out);
+            else
+                reader.readRows(Integer.parseInt(args[1]), Integer.parseInt(args[2]), out);
+        } catch (IOException | RuntimeException ex) {
+            System.err.printf("Error: %s\n%s\n", ex.getMessage(), USAGE);
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.nami;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+//Writes every char as its index in the charset, packed at ceil(log2(charset length)) bits, rows must come in order.
+//Layout, big endian:
+//  0  int    MAGIC
+//  4  byte   VERSION
+//  5  byte   bits per char
+//  6  int    width
+//  10 int    height
+//  14 long   offset of the footer
+//  22 short  charset length n
+//  24 char*n charset
+//then height rows of (width * bits + 7) / 8 bytes each, packed from the highest bit on, and the footer as UTF-8 up to the end.
+//Rows all have the same length, so the offset of any row follows from the header
+public class PackedTextSink implements TextSink {
+
+    static final int MAGIC = 0x49544350;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int FOOTER_OFFSET_POSITION = 14;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final int width, height, bits;
+    private final int[] indices;
+    private final byte[] packed;
+    private int nextY;
+    private long position, footerOffset = -1;
+
+    public PackedTextSink(File file, char[] charset, int width, int height) throws IOException {
+        if (charset.length == 0 || charset.length > 0xFFFF)
+            throw new IllegalArgumentException("Charset must have 1 to 65535 chars");
+        this.width = width;
+        this.height = height;
+        this.bits = bits(charset.length);
+        this.packed = new byte[rowBytes(width, bits)];
+
+        indices = Charsets.indices(charset);
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + charset.length * 2);
+        header.putInt(MAGIC).put((byte) VERSION).put((byte) bits).putInt(width).putInt(height).putLong(-1).putShort((short) charset.length);
+        for (char c : charset)
+            header.putChar(c);
+        header.flip();
+        put(header);
+    }
+
+    static int bits(int charsetLength) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(charsetLength - 1));
+    }
+
+    static int rowBytes(int width, int bits) {
+        return (int) (((long) width * bits + 7) / 8);
+    }
+
+    @Override
+    public void row(int y, char[] chars, int offset, int length) throws IOException {
+        if (y != nextY)
+            throw new IllegalStateException(String.format("Expected row %s but got %s", nextY, y));
+        if (length != width)
+            throw new IllegalArgumentException(String.format("Expected %s chars but got %s", width, length));
+        nextY++;
+
+        //Bits are collected in a long and flushed a byte at a time
+        long acc = 0;
+        int accBits = 0, i = 0;
+        for (int x = 0; x < length; x++) {
+            char c = chars[offset + x];
+            int index = c < indices.length ? indices[c] : -1;
+            if (index < 0)
+                throw new IllegalArgumentException("Char is not part of the charset: " + c);
+            acc = (acc << bits) | index;
+            accBits += bits;
+            while (accBits >= 8) {
+                accBits -= 8;
+                packed[i++] = (byte) (acc >>> accBits);
+            }
+        }
+        if (accBits > 0)
+            packed[i] = (byte) (acc << (8 - accBits));
+        put(ByteBuffer.wrap(packed));
+    }
+
+    @Override
+    public void footer(String text) throws IOException {
+        if (footerOffset < 0) {
+            if (nextY != height)
+                throw new IllegalStateException(String.format("Footer after %s of %s rows", nextY, height));
+            footerOffset = position;
+        }
+        put(StandardCharsets.UTF_8.encode(text));
+    }
+
+    private void put(ByteBuffer bytes) throws IOException {
+        position += bytes.remaining();
+        if (bytes.remaining() > buffer.remaining())
+            drain();
+        if (bytes.remaining() > buffer.capacity()) {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    //The footer offset is only known at the end, so it is written into the header last
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+            ByteBuffer offset = ByteBuffer.allocate(Long.BYTES).putLong(footerOffset < 0 ? position : footerOffset);
+            offset.flip();
+            long at = FOOTER_OFFSET_POSITION;
+            while (offset.hasRemaining())
+                at += channel.write(offset, at);
+        } finally {
+            channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.nami;
+
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+//Renders a small char preview from a downscaled luminance grid, the image is only decoded again when it changes
+class Preview {
+
+    //Longest side of the cached luminance grid
+    private static final int SOURCE_SIZE = 512;
+    private static final int COLUMNS = 120;
+
+    private static class Source {
+        final File file;
+        final long lastModified;
+        final int width, height;
+        final int[] lum;
+
+        Source(File file, int width, int height) {
+            this.file = file;
+            this.lastModified = file.lastModified();
+            this.width = width;
+            this.height = height;
+            this.lum = new int[width * height];
+        }
+
+        boolean isOf(File file) {
+            return this.file.equals(file) && lastModified == file.lastModified();
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "preview");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //Renders of older generations stop at the next row and never reach the consumer
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> running;
+
+    //Only touched by the preview thread
+    private Source source;
+
+    //Must be called on the EDT, the text is handed to the consumer on the EDT as well
+    void render(File file, Settings settings, Consumer<String> consumer) {
+        long current = generation.incrementAndGet();
+        if (running != null)
+            running.cancel(true);
+
+        running = executor.submit(() -> {
+            String text;
+            try {
+                text = render(file, settings, current);
+            } catch (IOException | RuntimeException ex) {
+                text = String.format("Could not load preview\n%s", ex.getMessage());
+            }
+            if (text == null)
+                return;
+
+            String result = text;
+            SwingUtilities.invokeLater(() -> {
+                if (generation.get() == current)
+                    consumer.accept(result);
+            });
+        });
+    }
+
+    void cancel() {
+        generation.incrementAndGet();
+        if (running != null)
+            running.cancel(true);
+    }
+
+    private boolean isStale(long current) {
+        return generation.get() != current || Thread.currentThread().isInterrupted();
+    }
+
+    //Null if a newer render was requested in the meantime
+    private String render(File file, Settings settings, long current) throws IOException {
+        if (source == null || !source.isOf(file)) {
+            source = null;
+            Source loaded = load(file, current);
+            if (loaded == null)
+                return null;
+            source = loaded;
+        }
+
+        ImageToChars engine = new ImageToChars(settings.copy().setColumns(COLUMNS));
+        int[] size = engine.outputSize(source.width, source.height);
+        CharTable table = new CharTable(Charsets.get(settings.getCharsetName()));
+        StringBuilder sb = new StringBuilder((size[0] + 1) * size[1]);
+        char[] row = new char[size[0]];
+        RowResampler resampler = new RowResampler(source.width, source.height, size[0], size[1], (y, lum) -> {
+            table.map(lum, row, 0, row.length);
+            sb.append(row).append('\n');
+        });
+
+        int[] line = new int[source.width];
+        for (int y = 0; y < source.height; y++) {
+            if (isStale(current))
+                return null;
+            System.arraycopy(source.lum, y * source.width, line, 0, source.width);
+            resampler.push(line);
+        }
+        return sb.toString();
+    }
+
+    //Decodes only every n-th pixel of large images, which keeps loading fast regardless of the image size
+    private Source load(File file, long current) throws IOException {
+        try (StripDecoder probe = new StripDecoder(file, 1, 1)) {
+            int subsampling = Math.max(1, Math.max(probe.getRawWidth(), probe.getRawHeight()) / SOURCE_SIZE);
+            try (StripDecoder decoder = new StripDecoder(file, subsampling, 0)) {
+                double scale = Math.min(1, (double) SOURCE_SIZE / Math.max(decoder.getWidth(), decoder.getHeight()));
+                int width = Math.max(1, (int) Math.round(decoder.getWidth() * scale));
+                int height = Math.max(1, (int) Math.round(decoder.getHeight() * scale));
+                Source loaded = new Source(file, width, height);
+                RowResampler resampler = new RowResampler(decoder.getWidth(), decoder.getHeight(), width, height,
+                        (y, lum) -> System.arraycopy(lum, 0, loaded.lum, y * width, width));
+
+                int[] lum = new int[decoder.getWidth()];
+                BufferedImage strip;
+                while ((strip = decoder.next()) != null) {
+                    if (isStale(current))
+                        return null;
+                    LuminanceRaster raster = new LuminanceRaster(strip);
+                    for (int y = 0; y < decoder.getStripRows(); y++) {
+                        raster.row(y, lum);
+                        resampler.push(lum);
+                    }
+                }
+                return loaded;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.nami;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@FunctionalInterface
+public interface ProgressListener {
+
+    //Checked by reference in the engine, so passing it skips progress reporting entirely
+    ProgressListener NONE = (done, total) -> {
+    };
+
+    //May be called from any thread, including several at once
+    void progress(long done, long total);
+
+    //Forwards at most perSecond updates, dropping the ones in between; completion is always forwarded
+    static ProgressListener throttled(ProgressListener listener, int perSecond) {
+        if (listener == NONE)
+            return NONE;
+
+        long interval = 1000000000L / perSecond;
+        AtomicLong next = new AtomicLong(Long.MIN_VALUE);
+        return (done, total) -> {
+            long now = System.nanoTime();
+            long due = next.get();
+            if (done >= total || ((due == Long.MIN_VALUE || now - due >= 0) && next.compareAndSet(due, now + interval)))
+                listener.progress(done, total);
+        };
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.nami;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+//Turns rows of luminance, or packed RGB when converting in color, into chars for a sink; one instance per thread.
+//Floyd-Steinberg carries its error in two rows, the current and the next one, so rows must arrive in order
+class RowMapper {
+
+    //8x8 Bayer matrix, thresholds 0-63
+    private static final int[] BAYER = {
+            0, 32, 8, 40, 2, 34, 10, 42,
+            48, 16, 56, 24, 50, 18, 58, 26,
+            12, 44, 4, 36, 14, 46, 6, 38,
+            60, 28, 52, 20, 62, 30, 54, 22,
+            3, 35, 11, 43, 1, 33, 9, 41,
+            51, 19, 59, 27, 49, 17, 57, 25,
+            15, 47, 7, 39, 13, 45, 5, 37,
+            63, 31, 55, 23, 61, 29, 53, 21};
+
+    private static final int DIFFUSED_OFFSET = 256;
+
+    private final CharTable table;
+    private final boolean color;
+    private final Dithering dithering;
+    private final int width;
+    private final int[] values, lum;
+    private final char[] chars;
+
+    //Ordered: BAYER scaled to +-half a step of the charset
+    private int[] offsets;
+    //Floyd-Steinberg: error x16 of the current and the next row, column x at x + 1
+    private int[] error, nextError;
+    //Floyd-Steinberg: char and rounding error of every luminance plus error, shifted by DIFFUSED_OFFSET.
+    //The error of a char is at most half a step, so the diffused sum stays within +-128
+    private char[] diffusedChars;
+    private int[] diffusedErrors;
+    private int lastY = -1;
+
+    RowMapper(CharTable table, boolean color, int width) {
+        this(table, color, width, Dithering.NONE);
+    }
+
+    RowMapper(CharTable table, boolean color, int width, Dithering dithering) {
+        this.table = table;
+        this.color = color;
+        this.dithering = dithering;
+        this.width = width;
+        this.values = new int[width];
+        this.lum = color ? new int[width] : values;
+        this.chars = new char[width];
+
+        if (dithering == Dithering.ORDERED) {
+            offsets = new int[BAYER.length];
+            for (int i = 0; i < BAYER.length; i++)
+                offsets[i] = ((BAYER[i] * 2 + 1 - 64) * table.step()) / 128;
+        } else if (dithering == Dithering.FLOYD_STEINBERG) {
+            error = new int[width + 1];
+            nextError = new int[width + 1];
+            diffusedChars = new char[DIFFUSED_OFFSET * 3];
+            diffusedErrors = new int[DIFFUSED_OFFSET * 3];
+            for (int i = 0; i < diffusedChars.length; i++) {
+                int v = clamp(i - DIFFUSED_OFFSET);
+                diffusedChars[i] = table.get(v);
+                diffusedErrors[i] = v - table.quantized(v);
+            }
+        }
+    }
+
+    boolean isColor() {
+        return color;
+    }
+
+    //Undithered gray rows are read as fine luminance, so they map exactly like 0.21 R + 0.72 G + 0.07 B would
+    void map(LuminanceRaster raster, int y, RowSink sink) throws IOException {
+        boolean fine = !color && dithering == Dithering.NONE;
+        if (color)
+            raster.rgbRow(y, values);
+        else if (fine)
+            raster.fineRow(y, values);
+        else
+            raster.row(y, values);
+        emit(y, values, fine, sink);
+    }
+
+    void map(int y, int[] values, RowSink sink) throws IOException {
+        emit(y, values, false, sink);
+    }
+
+    private void emit(int y, int[] values, boolean fine, RowSink sink) throws IOException {
+        if (fine)
+            table.mapFine(values, chars, 0, width);
+        else
+            quantize(y, values);
+
+        if (color && sink instanceof ColorRowSink)
+            ((ColorRowSink) sink).row(y, chars, values, 0, width);
+        else
+            sink.row(y, chars, 0, width);
+    }
+
+    private void quantize(int y, int[] values) {
+        //Colors are averaged per channel, so without dithering their luminance is still exact
+        if (color && dithering == Dithering.NONE) {
+            for (int x = 0; x < width; x++)
+                lum[x] = LuminanceRaster.fineLuminance(values[x]);
+            table.mapFine(lum, chars, 0, width);
+            return;
+        }
+        if (color)
+            for (int x = 0; x < width; x++)
+                lum[x] = LuminanceRaster.luminance(values[x]);
+        int[] source = color ? lum : values;
+
+        switch (dithering) {
+            case ORDERED: {
+                int row = (y & 7) << 3;
+                for (int x = 0; x < width; x++)
+                    chars[x] = table.get(clamp(source[x] + offsets[row + (x & 7)]));
+                break;
+            }
+            case FLOYD_STEINBERG: {
+                //A skipped row breaks the chain, the error starts over
+                if (y != lastY + 1) {
+                    Arrays.fill(error, 0);
+                } else {
+                    int[] swap = error;
+                    error = nextError;
+                    nextError = swap;
+                }
+                lastY = y;
+
+                //The error of the right neighbour is carried along, every cell of the next row is written once
+                //its three contributors (x-1, x, x+1 of this row) are known
+                char[] diffusedChars = this.diffusedChars;
+                int[] diffusedErrors = this.diffusedErrors, error = this.error, nextError = this.nextError;
+                int carry = 0, e1 = 0, e2 = 0;
+                for (int x = 0; x < width; x++) {
+                    int i = source[x] + ((error[x + 1] + carry + 8) >> 4) + DIFFUSED_OFFSET;
+                    chars[x] = diffusedChars[i];
+                    int e = diffusedErrors[i];
+                    carry = e * 7;
+                    nextError[x] = e * 3 + e1 * 5 + e2;
+                    e2 = e1;
+                    e1 = e;
+                }
+                nextError[width] = e1 * 5 + e2;
+                break;
+            }
+            default:
+                table.map(source, chars, 0, width);
+        }
+    }
+
+    private static int clamp(int lum) {
+        return lum < 0 ? 0 : Math.min(lum, 255);
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.nami;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+//Box filter that resizes an image row by row, keeping only one accumulator row in memory.
+//Rows are either luminance values or packed RGB values averaged per channel
+public class RowResampler {
+
+    @FunctionalInterface
+    public interface Output {
+        void row(int y, int[] values) throws IOException;
+    }
+
+    private final int srcHeight, dstWidth, dstHeight;
+    private final boolean rgb;
+    private final int[] xStart, xEnd;
+    private final long[] sums, greenSums, blueSums;
+    private final int[] out;
+    private final Output output;
+
+    private int srcY, dstY, rows;
+
+    public RowResampler(int srcWidth, int srcHeight, int dstWidth, int dstHeight, Output output) {
+        this(srcWidth, srcHeight, dstWidth, dstHeight, false, output);
+    }
+
+    public RowResampler(int srcWidth, int srcHeight, int dstWidth, int dstHeight, boolean rgb, Output output) {
+        this.srcHeight = srcHeight;
+        this.dstWidth = dstWidth;
+        this.dstHeight = dstHeight;
+        this.rgb = rgb;
+        this.output = output;
+        this.sums = new long[dstWidth];
+        this.greenSums = rgb ? new long[dstWidth] : null;
+        this.blueSums = rgb ? new long[dstWidth] : null;
+        this.out = new int[dstWidth];
+
+        xStart = new int[dstWidth];
+        xEnd = new int[dstWidth];
+        for (int x = 0; x < dstWidth; x++) {
+            xStart[x] = start(x, srcWidth, dstWidth);
+            xEnd[x] = end(x, srcWidth, dstWidth);
+        }
+    }
+
+    //Source range [start, end) covered by destination index i, never empty so upscaling repeats pixels
+    private static int start(int i, int src, int dst) {
+        return (int) ((long) i * src / dst);
+    }
+
+    private static int end(int i, int src, int dst) {
+        return Math.max(start(i, src, dst) + 1, (int) ((long) (i + 1) * src / dst));
+    }
+
+    public int getWidth() {
+        return dstWidth;
+    }
+
+    public int getHeight() {
+        return dstHeight;
+    }
+
+    //Adds the next source row, emitting every destination row that ends with it
+    public void push(int[] values) throws IOException {
+        if (rgb)
+            accumulateRgb(values);
+        else
+            accumulate(values);
+        rows++;
+
+        while (dstY < dstHeight && end(dstY, srcHeight, dstHeight) == srcY + 1) {
+            for (int x = 0; x < dstWidth; x++) {
+                long count = (long) (xEnd[x] - xStart[x]) * rows;
+                out[x] = (int) ((sums[x] + count / 2) / count);
+                if (rgb)
+                    out[x] = out[x] << 16 | (int) ((greenSums[x] + count / 2) / count) << 8 | (int) ((blueSums[x] + count / 2) / count);
+            }
+            output.row(dstY++, out);
+
+            //When upscaling the next row may reuse the same source row
+            if (dstY < dstHeight && start(dstY, srcHeight, dstHeight) > srcY) {
+                Arrays.fill(sums, 0);
+                if (rgb) {
+                    Arrays.fill(greenSums, 0);
+                    Arrays.fill(blueSums, 0);
+                }
+                rows = 0;
+            }
+        }
+        srcY++;
+    }
+
+    private void accumulate(int[] lum) {
+        for (int x = 0; x < dstWidth; x++) {
+            int sum = 0;
+            for (int i = xStart[x], end = xEnd[x]; i < end; i++)
+                sum += lum[i];
+            sums[x] += sum;
+        }
+    }
+
+    private void accumulateRgb(int[] rgb) {
+        for (int x = 0; x < dstWidth; x++) {
+            int red = 0, green = 0, blue = 0;
+            for (int i = xStart[x], end = xEnd[x]; i < end; i++) {
+                int pixel = rgb[i];
+                red += (pixel >> 16) & 0xFF;
+                green += (pixel >> 8) & 0xFF;
+                blue += pixel & 0xFF;
+            }
+            sums[x] += red;
+            greenSums[x] += green;
+            blueSums[x] += blue;
+        }
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.nami;
+
+import java.io.IOException;
+
+//Receives the chars of one output row at a time
+@FunctionalInterface
+public interface RowSink {
+
+    void row(int y, char[] chars, int offset, int length) throws IOException;
+
+    //Sinks that accept rows in any order and from several threads at once
+    default boolean isRandomAccess() {
+        return false;
+    }
+
+}
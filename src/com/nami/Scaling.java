@@ -0,0 +1,5 @@
+package com.nami;
+
+public enum Scaling {
+    WIDTH, HEIGHT, NONE
+}
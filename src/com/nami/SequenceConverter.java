@@ -0,0 +1,218 @@
+package com.nami;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+//Converts all frames of an animation through a decode -> map -> write pipeline with one thread per stage
+public class SequenceConverter {
+
+    //Frames buffered between two stages
+    private static final int QUEUE_SIZE = 4;
+    //Unchanged cells between two changed runs that are still written as part of one run
+    private static final int MAX_RUN_GAP = 4;
+
+    private static final Object END = new Object();
+
+    private final ImageToChars engine;
+    private final boolean delta;
+    private final int defaultDelay;
+
+    //With delta, every frame after the first only lists the cells that changed
+    public SequenceConverter(ImageToChars engine, boolean delta, int defaultDelay) {
+        this.engine = engine;
+        this.delta = delta;
+        this.defaultDelay = defaultDelay;
+    }
+
+    private static class Converted {
+        final FrameReader.Frame frame;
+        final Conversion conversion;
+
+        Converted(FrameReader.Frame frame, Conversion conversion) {
+            this.frame = frame;
+            this.conversion = conversion;
+        }
+    }
+
+    //Reports progress in frames
+    public File save(File input, ProgressListener listener) throws IOException {
+        long startTime = System.nanoTime();
+        File newFile = engine.outputFile(input);
+        BlockingQueue<Object> decoded = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        BlockingQueue<Object> converted = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] stages = new Thread[3];
+
+        try (FrameReader reader = new FrameReader(input, defaultDelay)) {
+            int frames = reader.getFrameCount();
+
+            Thread decoder = stage("decode", failure, stages, () -> {
+                try {
+                    FrameReader.Frame frame;
+                    while ((frame = reader.next()) != null)
+                        decoded.put(frame);
+                } finally {
+                    decoded.put(END);
+                }
+            });
+
+            Thread mapper = stage("map", failure, stages, () -> {
+                try {
+                    Object item;
+                    while ((item = decoded.take()) != END) {
+                        FrameReader.Frame frame = (FrameReader.Frame) item;
+                        converted.put(new Converted(frame, engine.convert(input, frame.getImage(), startTime, ProgressListener.NONE)));
+                    }
+                } finally {
+                    converted.put(END);
+                }
+            });
+
+            Thread writer = stage("write", failure, stages, () -> {
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(newFile.toPath()), engine.getSettings().getEncoding()), 1 << 16)) {
+                    CharGrid last = null;
+                    Conversion conversion = null;
+                    Object item;
+                    while ((item = converted.take()) != END) {
+                        Converted next = (Converted) item;
+                        conversion = next.conversion;
+                        write(out, next.frame, conversion.getGrid(), last);
+                        last = conversion.getGrid();
+                        if (listener != ProgressListener.NONE)
+                            listener.progress(next.frame.getIndex() + 1, frames);
+                    }
+                    if (conversion != null) {
+                        out.write(engine.footer(conversion));
+                        out.write(String.format("\nframes: %s", frames));
+                    }
+                }
+            });
+
+            stages[0] = decoder;
+            stages[1] = mapper;
+            stages[2] = writer;
+            for (Thread stage : stages)
+                stage.start();
+            try {
+                for (Thread stage : stages)
+                    stage.join();
+            } catch (InterruptedException ex) {
+                //The stages still use the reader and the output file, so they are stopped and awaited before either is cleaned up
+                for (Thread stage : stages)
+                    stage.interrupt();
+                awaitStages(stages);
+                Thread.currentThread().interrupt();
+                newFile.delete();
+                throw new InterruptedIOException("Sequence conversion interrupted");
+            }
+        }
+
+        Throwable ex = failure.get();
+        if (ex != null) {
+            newFile.delete();
+            if (ex instanceof IOException)
+                throw (IOException) ex;
+            if (ex instanceof RuntimeException)
+                throw (RuntimeException) ex;
+            if (ex instanceof Error)
+                throw (Error) ex;
+            throw new IOException(ex);
+        }
+        return newFile;
+    }
+
+    private static void awaitStages(Thread[] stages) {
+        for (Thread stage : stages) {
+            while (stage.isAlive()) {
+                try {
+                    stage.join();
+                } catch (InterruptedException ignored) {
+                    //Already cancelling, the interrupt is restored by the caller
+                }
+            }
+        }
+    }
+
+    private static int changed(char[] chars, char[] previous) {
+        int changed = 0;
+        for (int i = 0; i < chars.length; i++)
+            if (chars[i] != previous[i])
+                changed++;
+        return changed;
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    //A failing stage records the first error and interrupts the others, which may be blocked on a queue
+    private static Thread stage(String name, AtomicReference<Throwable> failure, Thread[] stages, Stage stage) {
+        Thread thread = new Thread(() -> {
+            try {
+                stage.run();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable ex) {
+                failure.compareAndSet(null, ex);
+                for (Thread other : stages)
+                    if (other != Thread.currentThread())
+                        other.interrupt();
+            }
+        }, "sequence-" + name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    //A full frame starts with "<FRAME index delay>", a delta frame with "<DELTA index delay>" followed by "row column chars" runs.
+    //Scene cuts where most cells change are written as full frames
+    private void write(Writer out, FrameReader.Frame frame, CharGrid grid, CharGrid last) throws IOException {
+        if (!delta || last == null || last.getWidth() != grid.getWidth() || last.getHeight() != grid.getHeight()
+                || changed(grid.getChars(), last.getChars()) * 2 > grid.getChars().length) {
+            out.write(String.format("<FRAME %s %sms>\n", frame.getIndex(), frame.getDelay()));
+            for (int y = 0; y < grid.getHeight(); y++) {
+                out.write(grid.getChars(), y * grid.getWidth(), grid.getWidth());
+                out.write('\n');
+            }
+            return;
+        }
+
+        out.write(String.format("<DELTA %s %sms>\n", frame.getIndex(), frame.getDelay()));
+        char[] chars = grid.getChars();
+        char[] previous = last.getChars();
+        int width = grid.getWidth();
+        for (int y = 0; y < grid.getHeight(); y++) {
+            int row = y * width;
+            int x = 0;
+            while (x < width) {
+                if (chars[row + x] == previous[row + x]) {
+                    x++;
+                    continue;
+                }
+
+                //Extend the run over short unchanged gaps, a new run line costs more than a few repeated chars
+                int start = x, end = x + 1, gap = 0;
+                for (x++; x < width && gap <= MAX_RUN_GAP; x++) {
+                    if (chars[row + x] != previous[row + x]) {
+                        end = x + 1;
+                        gap = 0;
+                    } else {
+                        gap++;
+                    }
+                }
+                x = end;
+
+                out.write(Integer.toString(y));
+                out.write(' ');
+                out.write(Integer.toString(start));
+                out.write(' ');
+                out.write(chars, row + start, end - start);
+                out.write('\n');
+            }
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.nami;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+public class Settings {
+
+    private File destination;
+    private String fontName = "Consolas";
+    private Scaling scaling = Scaling.HEIGHT;
+    private String charsetName = Charsets.DEFAULT;
+    private int columns;
+    private boolean streaming;
+    private int subsampling = 1;
+    private int stripRows;
+    private Charset encoding = StandardCharsets.UTF_8;
+    private ColorMode color = ColorMode.NONE;
+    private Matching matching = Matching.BRIGHTNESS;
+    private Dithering dithering = Dithering.NONE;
+    private OutputFormat format = OutputFormat.TEXT;
+    private int glyphHeight = 16;
+    private boolean metrics;
+
+    public Settings copy() {
+        Settings copy = new Settings();
+        copy.destination = destination;
+        copy.fontName = fontName;
+        copy.scaling = scaling;
+        copy.charsetName = charsetName;
+        copy.columns = columns;
+        copy.streaming = streaming;
+        copy.subsampling = subsampling;
+        copy.stripRows = stripRows;
+        copy.encoding = encoding;
+        copy.color = color;
+        copy.matching = matching;
+        copy.dithering = dithering;
+        copy.format = format;
+        copy.glyphHeight = glyphHeight;
+        copy.metrics = metrics;
+        return copy;
+    }
+
+    public File getDestination() {
+        return destination;
+    }
+
+    public Settings setDestination(File destination) {
+        this.destination = destination;
+        return this;
+    }
+
+    public String getFontName() {
+        return fontName;
+    }
+
+    public Settings setFontName(String fontName) {
+        this.fontName = fontName;
+        return this;
+    }
+
+    public Scaling getScaling() {
+        return scaling;
+    }
+
+    public Settings setScaling(Scaling scaling) {
+        this.scaling = scaling;
+        return this;
+    }
+
+    public String getCharsetName() {
+        return charsetName;
+    }
+
+    public Settings setCharsetName(String charsetName) {
+        Charsets.get(charsetName);
+        this.charsetName = charsetName;
+        return this;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    //Fixed output width in chars, averaging source pixels per cell; 0 keeps one char per (scaled) pixel
+    public Settings setColumns(int columns) {
+        if (columns < 0)
+            throw new IllegalArgumentException("Columns must not be negative");
+        this.columns = columns;
+        return this;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    //Decodes the image in strips instead of loading it as a whole
+    public Settings setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    public int getSubsampling() {
+        return subsampling;
+    }
+
+    //Only decodes every n-th pixel in both directions while streaming
+    public Settings setSubsampling(int subsampling) {
+        if (subsampling < 1)
+            throw new IllegalArgumentException("Subsampling must be positive");
+        this.subsampling = subsampling;
+        return this;
+    }
+
+    public int getStripRows() {
+        return stripRows;
+    }
+
+    //Rows decoded per strip while streaming, 0 picks them from a memory budget
+    public Settings setStripRows(int stripRows) {
+        if (stripRows < 0)
+            throw new IllegalArgumentException("Strip rows must not be negative");
+        this.stripRows = stripRows;
+        return this;
+    }
+
+    public Charset getEncoding() {
+        return encoding;
+    }
+
+    //Encoding of the written text files
+    public Settings setEncoding(Charset encoding) {
+        this.encoding = encoding;
+        return this;
+    }
+
+    public ColorMode getColor() {
+        return color;
+    }
+
+    //Colors the chars with ANSI escape sequences in the written text files
+    public Settings setColor(ColorMode color) {
+        this.color = color;
+        return this;
+    }
+
+    public Matching getMatching() {
+        return matching;
+    }
+
+    //Matches 8x16 pixel cells against the glyph shapes of the font instead of single pixels against brightness
+    public Settings setMatching(Matching matching) {
+        this.matching = matching;
+        return this;
+    }
+
+    public Dithering getDithering() {
+        return dithering;
+    }
+
+    //Spreads the rounding error of every char over its neighbours, so few chars still show smooth gradients.
+    //Shape matching ignores it
+    public Settings setDithering(Dithering dithering) {
+        this.dithering = dithering;
+        return this;
+    }
+
+    public OutputFormat getFormat() {
+        return format;
+    }
+
+    //Packed files store charset indices at a few bits per char instead of text, they have no color.
+    //PNG renders the chars in the font, colored if color is set
+    public Settings setFormat(OutputFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    public int getGlyphHeight() {
+        return glyphHeight;
+    }
+
+    //Pixel height of one char in PNG output, the width follows from the font
+    public Settings setGlyphHeight(int glyphHeight) {
+        if (glyphHeight < 1)
+            throw new IllegalArgumentException("Glyph height must be positive");
+        this.glyphHeight = glyphHeight;
+        return this;
+    }
+
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    //Writes the time, allocations and pixels per stage of every saved image to a JSON file next to it
+    public Settings setMetrics(boolean metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+}
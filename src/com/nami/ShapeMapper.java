@@ -0,0 +1,107 @@
+package com.nami;
+
+import java.io.IOException;
+
+//Collects 16 resampled rows and matches every 8x16 cell of them against the glyph bitmaps
+class ShapeMapper implements RowResampler.Output {
+
+    private static final int CELL_WIDTH = GlyphIndex.CELL_WIDTH, CELL_HEIGHT = GlyphIndex.CELL_HEIGHT;
+    //Cells with less luminance range than this have no visible shape and are mapped on brightness
+    private static final int MIN_CONTRAST = 48;
+
+    private final GlyphIndex index;
+    private final CharTable table;
+    private final boolean color;
+    private final int columns, rows;
+    private final RowSink sink;
+    private final ProgressListener listener;
+
+    private final int[][] lum, rgb;
+    private final char[] chars;
+    private final int[] cellColors;
+
+    //Input rows are columns * 8 values wide, packed RGB when converting in color and luminance otherwise
+    ShapeMapper(GlyphIndex index, CharTable table, boolean color, int columns, int rows, RowSink sink, ProgressListener listener) {
+        this.index = index;
+        this.table = table;
+        this.color = color;
+        this.columns = columns;
+        this.rows = rows;
+        this.sink = sink;
+        this.listener = listener;
+        this.lum = new int[CELL_HEIGHT][columns * CELL_WIDTH];
+        this.rgb = color ? new int[CELL_HEIGHT][columns * CELL_WIDTH] : null;
+        this.chars = new char[columns];
+        this.cellColors = color ? new int[columns] : null;
+    }
+
+    @Override
+    public void row(int y, int[] values) throws IOException {
+        int[] lumRow = lum[y % CELL_HEIGHT];
+        if (color) {
+            System.arraycopy(values, 0, rgb[y % CELL_HEIGHT], 0, lumRow.length);
+            for (int x = 0; x < lumRow.length; x++)
+                lumRow[x] = LuminanceRaster.luminance(values[x]);
+        } else {
+            System.arraycopy(values, 0, lumRow, 0, lumRow.length);
+        }
+
+        if (y % CELL_HEIGHT == CELL_HEIGHT - 1)
+            emit(y / CELL_HEIGHT);
+    }
+
+    private void emit(int row) throws IOException {
+        for (int column = 0; column < columns; column++) {
+            int x0 = column * CELL_WIDTH;
+            int sum = 0, min = 255, max = 0;
+            for (int[] line : lum)
+                for (int x = x0; x < x0 + CELL_WIDTH; x++) {
+                    int value = line[x];
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            int mean = (sum + CELL_WIDTH * CELL_HEIGHT / 2) / (CELL_WIDTH * CELL_HEIGHT);
+
+            if (max - min < MIN_CONTRAST) {
+                chars[column] = table.get(mean);
+            } else {
+                //Pixels darker than the cell average are ink
+                long top = 0, bottom = 0;
+                for (int cy = 0; cy < CELL_HEIGHT; cy++)
+                    for (int cx = 0; cx < CELL_WIDTH; cx++)
+                        if (lum[cy][x0 + cx] < mean) {
+                            int bit = cy * CELL_WIDTH + cx;
+                            if (bit < 64)
+                                top |= 1L << bit;
+                            else
+                                bottom |= 1L << (bit - 64);
+                        }
+                chars[column] = index.match(top, bottom, 255 - mean);
+            }
+
+            if (color)
+                cellColors[column] = average(x0);
+        }
+
+        if (color && sink instanceof ColorRowSink)
+            ((ColorRowSink) sink).row(row, chars, cellColors, 0, columns);
+        else
+            sink.row(row, chars, 0, columns);
+        if (listener != ProgressListener.NONE)
+            listener.progress(row + 1, rows);
+    }
+
+    private int average(int x0) {
+        int red = 0, green = 0, blue = 0;
+        for (int[] line : rgb)
+            for (int x = x0; x < x0 + CELL_WIDTH; x++) {
+                red += (line[x] >> 16) & 0xFF;
+                green += (line[x] >> 8) & 0xFF;
+                blue += line[x] & 0xFF;
+            }
+        int half = CELL_WIDTH * CELL_HEIGHT / 2, count = CELL_WIDTH * CELL_HEIGHT;
+        return (red + half) / count << 16 | (green + half) / count << 8 | (blue + half) / count;
+    }
+
+}
@@ -0,0 +1,5 @@
+package com.nami;
+
+public enum Stage {
+    DECODE, SCALE, MAP, WRITE
+}
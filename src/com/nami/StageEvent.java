@@ -0,0 +1,29 @@
+package com.nami;
+
+import jdk.jfr.*;
+
+//Totals of one stage of one conversion, visible in Flight Recorder under Image-To-Chars
+@Name("com.nami.Stage")
+@Label("Conversion Stage")
+@Category("Image-To-Chars")
+@StackTrace(false)
+class StageEvent extends Event {
+
+    @Label("Image File")
+    String file;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Wall Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long wallTime;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+
+    @Label("Pixels")
+    long pixels;
+
+}
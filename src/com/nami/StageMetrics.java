@@ -0,0 +1,140 @@
+package com.nami;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+//Wall time, allocated bytes and processed pixels per stage of one conversion.
+//A stage started inside another one on the same thread is only counted for the inner stage.
+//Allocations are measured on the threads that start stages, work done for them on a pool is not included
+public class StageMetrics {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private final String file;
+    private final long[] nanos = new long[Stage.values().length];
+    private final long[] allocated = new long[Stage.values().length];
+    private final long[] pixels = new long[Stage.values().length];
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+
+    public StageMetrics(String file) {
+        this.file = file;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean))
+            return null;
+        com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+        return sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled() ? sunThreads : null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    public class Span {
+        private final Stage stage;
+        private final Span parent;
+        private final long startNanos, startBytes;
+        private long childNanos, childBytes;
+
+        private Span(Stage stage, Span parent) {
+            this.stage = stage;
+            this.parent = parent;
+            this.startBytes = allocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        //Must be called on the thread that started the span
+        public void end() {
+            long spanNanos = System.nanoTime() - startNanos;
+            long spanBytes = allocatedBytes() - startBytes;
+            add(stage, spanNanos - childNanos, spanBytes - childBytes, 0);
+            if (parent != null) {
+                parent.childNanos += spanNanos;
+                parent.childBytes += spanBytes;
+            }
+            current.set(parent);
+        }
+    }
+
+    public Span start(Stage stage) {
+        Span span = new Span(stage, current.get());
+        current.set(span);
+        return span;
+    }
+
+    public void addPixels(Stage stage, long count) {
+        add(stage, 0, 0, count);
+    }
+
+    private synchronized void add(Stage stage, long nanos, long bytes, long count) {
+        this.nanos[stage.ordinal()] += nanos;
+        this.allocated[stage.ordinal()] += bytes;
+        this.pixels[stage.ordinal()] += count;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public synchronized long getNanos(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    public synchronized long getAllocatedBytes(Stage stage) {
+        return allocated[stage.ordinal()];
+    }
+
+    public synchronized long getPixels(Stage stage) {
+        return pixels[stage.ordinal()];
+    }
+
+    public synchronized double getPixelsPerSecond(Stage stage) {
+        long time = nanos[stage.ordinal()];
+        return time > 0 ? pixels[stage.ordinal()] * 1000000000d / time : 0;
+    }
+
+    //Emits one Flight Recorder event per stage that ran
+    public void commit() {
+        for (Stage stage : Stage.values()) {
+            StageEvent event = new StageEvent();
+            if (!event.isEnabled() || getNanos(stage) == 0)
+                continue;
+            event.file = file;
+            event.stage = stage.name().toLowerCase(Locale.ROOT);
+            event.wallTime = getNanos(stage);
+            event.allocated = getAllocatedBytes(stage);
+            event.pixels = getPixels(stage);
+            event.commit();
+        }
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"file\": \"").append(escape(file)).append("\",\n  \"stages\": {");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            Stage stage = stages[i];
+            sb.append(i == 0 ? "\n" : ",\n");
+            sb.append(String.format(Locale.ROOT, "    \"%s\": {\"wallTimeMs\": %.3f, \"allocatedBytes\": %s, \"pixels\": %s, \"pixelsPerSecond\": %.0f}",
+                    stage.name().toLowerCase(Locale.ROOT), getNanos(stage) / 1000000d, getAllocatedBytes(stage), getPixels(stage), getPixelsPerSecond(stage)));
+        }
+        return sb.append("\n  }\n}\n").toString();
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+
+}
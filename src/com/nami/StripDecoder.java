@@ -0,0 +1,99 @@
+package com.nami;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+//Decodes an image in horizontal strips so that only one strip is held in memory at a time
+public class StripDecoder implements Closeable {
+
+    //Decoded bytes per strip when no strip height is given
+    private static final long STRIP_BUDGET = 32L << 20;
+
+    private final ImageInputStream input;
+    private final ImageReader reader;
+    private final ImageReadParam param;
+    private final int rawWidth, rawHeight;
+    private final int subsampling;
+    private final int stripRows;
+
+    private int nextY;
+    private int lastRows;
+    private BufferedImage strip;
+
+    public StripDecoder(File imageFile, int subsampling, int stripRows) throws IOException {
+        if (subsampling < 1)
+            throw new IllegalArgumentException("Subsampling must be positive");
+
+        input = ImageIO.createImageInputStream(imageFile);
+        if (input == null)
+            throw new IOException("Could not open image file: " + imageFile.getName());
+
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("Unsupported image format: " + imageFile.getName());
+        }
+
+        reader = readers.next();
+        reader.setInput(input, false, true);
+        param = reader.getDefaultReadParam();
+        rawWidth = reader.getWidth(0);
+        rawHeight = reader.getHeight(0);
+        this.subsampling = subsampling;
+
+        //Strips always start on a subsampled row
+        if (stripRows <= 0)
+            stripRows = (int) Math.max(16, STRIP_BUDGET / (4L * getWidth()));
+        this.stripRows = stripRows;
+    }
+
+    public int getRawWidth() {
+        return rawWidth;
+    }
+
+    public int getRawHeight() {
+        return rawHeight;
+    }
+
+    public int getWidth() {
+        return (rawWidth + subsampling - 1) / subsampling;
+    }
+
+    public int getHeight() {
+        return (rawHeight + subsampling - 1) / subsampling;
+    }
+
+    //Decodes the next strip into a reused image or returns null when done, valid rows are given by getStripRows()
+    public BufferedImage next() throws IOException {
+        if (nextY >= getHeight())
+            return null;
+
+        lastRows = Math.min(stripRows, getHeight() - nextY);
+        int srcY = nextY * subsampling;
+        param.setSourceRegion(new Rectangle(0, srcY, rawWidth, Math.min(lastRows * subsampling, rawHeight - srcY)));
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        param.setDestination(strip);
+        strip = reader.read(0, param);
+        nextY += lastRows;
+        return strip;
+    }
+
+    public int getStripRows() {
+        return lastRows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        input.close();
+    }
+
+}
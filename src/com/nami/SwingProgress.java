@@ -0,0 +1,47 @@
+package com.nami;
+
+import javax.swing.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Coalesces progress from worker threads into at most one pending EDT update at a time
+public class SwingProgress implements ProgressListener {
+
+    private final ProgressListener edtListener;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long done, total;
+
+    public SwingProgress(ProgressListener edtListener) {
+        this.edtListener = edtListener;
+    }
+
+    public static ProgressListener of(ProgressListener edtListener, int perSecond) {
+        return ProgressListener.throttled(new SwingProgress(edtListener), perSecond);
+    }
+
+    //Changes without a value of their own, any number of them runs the task once
+    public static Runnable coalesced(Runnable edtTask) {
+        SwingProgress progress = new SwingProgress((done, total) -> edtTask.run());
+        return () -> progress.progress(0, 0);
+    }
+
+    @Override
+    public void progress(long done, long total) {
+        synchronized (this) {
+            this.done = done;
+            this.total = total;
+        }
+        if (scheduled.compareAndSet(false, true))
+            SwingUtilities.invokeLater(this::flush);
+    }
+
+    private void flush() {
+        long done, total;
+        synchronized (this) {
+            scheduled.set(false);
+            done = this.done;
+            total = this.total;
+        }
+        edtListener.progress(done, total);
+    }
+
+}
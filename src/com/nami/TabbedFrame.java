@@ -1,20 +1,32 @@
 package com.nami;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
-import java.awt.font.FontRenderContext;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Rectangle2D;
-import java.awt.image.AffineTransformOp;
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class TabbedFrame extends JFrame {
+    //Time in ms without changes before the preview is rendered
+    private static final int PREVIEW_DELAY = 150;
+    //Finished jobs kept in the list, older ones are dropped
+    private static final int MAX_FINISHED_JOBS = 100;
+
+    //Jobs change their own fields, the model only tells the list to lay out and draw all of them again
+    private static class JobListModel extends DefaultListModel<JobQueue.Job> {
+        private static final long serialVersionUID = 1L;
+
+        void changed() {
+            if (!isEmpty())
+                fireContentsChanged(this, 0, size() - 1);
+        }
+    }
 
-public class TabbedFrame extends JFrame implements Runnable {
     //Window
     private JPanel panel;
 
@@ -33,13 +45,27 @@ public class TabbedFrame extends JFrame implements Runnable {
     //Charset
     private JComboBox<String> charsetComboBox;
 
+    //Preview Tab
+    private JTextArea previewTextArea;
+
     //Processing Tab
     private JProgressBar processingProgressBar;
+    private JList<JobQueue.Job> processingJobList;
     private JButton processingRunButton;
+    private JButton processingCancelButton;
 
     //Utilities
-    private HashMap<String, char[]> charsets;
     private JFileChooser imageFileChooser, destinationFileChooser;
+    //Keeps the luminance of recent images, so trying another charset skips decoding and scaling
+    private final ConversionCache cache = new ConversionCache(ConversionCache.DEFAULT_BUDGET, null);
+    private final Preview preview = new Preview();
+    private Timer previewTimer;
+    private final JobListModel jobs = new JobListModel();
+    //Finished jobs no longer in the list, still counted by the progress bar
+    private int droppedJobs;
+    //Jobs only change their own fields, the list is redrawn once for all changes since the last time
+    private final Runnable jobsChanged = SwingProgress.coalesced(this::jobsChanged);
+    private final JobQueue jobQueue = new JobQueue(JobQueue.DEFAULT_THREADS, ForkJoinPool.commonPool(), cache, job -> jobsChanged.run());
 
     public TabbedFrame() {
         initFrame();
@@ -48,6 +74,7 @@ public class TabbedFrame extends JFrame implements Runnable {
         initFileTab();
         initScalingTab();
         initCharsetTab();
+        initPreviewTab();
         initProcessingTab();
 
         setVisible(true);
@@ -63,18 +90,13 @@ public class TabbedFrame extends JFrame implements Runnable {
     }
 
     private void initUtilities() {
-        //Converting ASCII grey scale
-        charsets = new HashMap<>();
-        charsets.put("symbols", toArray("@&#*!=;:~-,. "));
-        charsets.put("all", toArray("$@B%8&WM#*oahkbdpqwmZO0QLCJUYXzcvunxrjft/\\|()1{}[]?-_+~<>i!lI;:,\"^`'. "));
-
         //Image file chooser
         imageFileChooser = new JFileChooser();
-        imageFileChooser.setDialogTitle("Select Image");
-        imageFileChooser.setMultiSelectionEnabled(false);
+        imageFileChooser.setDialogTitle("Select Images");
+        imageFileChooser.setMultiSelectionEnabled(true);
         imageFileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
         imageFileChooser.setAcceptAllFileFilterUsed(false);
-        String[] extensions = {"jpg", "jpeg", "jfif", "pjpeg", "pjp", "png", "bmp", "ico", "cur"};
+        String[] extensions = ImageToChars.IMAGE_EXTENSIONS;
         imageFileChooser.addChoosableFileFilter(new FileNameExtensionFilter("Image " + Arrays.toString(extensions), extensions));
 
         //Folder file chooser
@@ -90,11 +112,14 @@ public class TabbedFrame extends JFrame implements Runnable {
             if (rep != JFileChooser.APPROVE_OPTION)
                 return;
 
-            File file = imageFileChooser.getSelectedFile();
-            fileImagePathTextField.setText(file.getAbsolutePath());
+            //Several images are listed in one field, separated like a class path
+            StringJoiner paths = new StringJoiner(File.pathSeparator);
+            for (File file : imageFileChooser.getSelectedFiles())
+                paths.add(file.getAbsolutePath());
+            fileImagePathTextField.setText(paths.toString());
 
             if (fileDestinationPathTextField.getText().trim().isEmpty())
-                fileDestinationPathTextField.setText(file.getParent());
+                fileDestinationPathTextField.setText(imageFileChooser.getSelectedFiles()[0].getParent());
         });
 
         fileDestinationPathSelectButton.addActionListener(e -> {
@@ -111,46 +136,112 @@ public class TabbedFrame extends JFrame implements Runnable {
         scalingHeightRadioButton.addActionListener(e -> scalingFontsComboBox.setEnabled(true));
         scalingNoneRadioButton.addActionListener(e -> scalingFontsComboBox.setEnabled(false));
 
-        final int FONT_SIZE = 16;
-        final FontRenderContext FRC = new FontRenderContext(new AffineTransform(), false, false);
+        FontCache.fill(scalingFontsComboBox, "Consolas");
+    }
+
+    private void initCharsetTab() {
+        Charsets.names().forEach(charsetComboBox::addItem);
+        charsetComboBox.setSelectedItem(Charsets.DEFAULT);
+    }
+
+    private void initPreviewTab() {
+        previewTextArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 4));
+
+        //Rapid changes only render once they settle
+        previewTimer = new Timer(PREVIEW_DELAY, e -> updatePreview());
+        previewTimer.setRepeats(false);
+
+        fileImagePathTextField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                previewTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                previewTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                previewTimer.restart();
+            }
+        });
+        scalingWidthRadioButton.addActionListener(e -> previewTimer.restart());
+        scalingHeightRadioButton.addActionListener(e -> previewTimer.restart());
+        scalingNoneRadioButton.addActionListener(e -> previewTimer.restart());
+        scalingFontsComboBox.addActionListener(e -> previewTimer.restart());
+        charsetComboBox.addActionListener(e -> previewTimer.restart());
+    }
 
-        String[] fontNames = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
-        for (String fn : fontNames) {
-            Font font = new Font(fn, Font.PLAIN, FONT_SIZE);
-            Rectangle2D boundsI = font.getStringBounds("i", FRC);
-            Rectangle2D boundsM = font.getStringBounds("m", FRC);
-            if (boundsI.getWidth() == boundsM.getWidth())
-                scalingFontsComboBox.addItem(fn);
+    //Shows the first of the selected images
+    private void updatePreview() {
+        List<File> imageFiles = imageFiles();
+        File imageFile = imageFiles.isEmpty() ? null : imageFiles.get(0);
+        if (imageFile == null || !imageFile.isFile()) {
+            preview.cancel();
+            previewTextArea.setText("");
+            return;
         }
-        scalingFontsComboBox.setSelectedItem("Consolas");
+
+        preview.render(imageFile, settings(), text -> {
+            previewTextArea.setText(text);
+            previewTextArea.setCaretPosition(0);
+        });
     }
 
-    private void initCharsetTab() {
-        charsets.forEach((k, v) -> charsetComboBox.addItem(k));
-        charsetComboBox.setSelectedItem("symbols");
+    private List<File> imageFiles() {
+        List<File> files = new ArrayList<>();
+        for (String path : fileImagePathTextField.getText().split(File.pathSeparator))
+            if (!path.trim().isEmpty())
+                files.add(new File(path.trim()));
+        return files;
+    }
+
+    private Settings settings() {
+        return new Settings()
+                .setFontName(FontCache.family((String) scalingFontsComboBox.getSelectedItem()))
+                .setScaling(scalingWidthRadioButton.isSelected() ? Scaling.WIDTH : scalingHeightRadioButton.isSelected() ? Scaling.HEIGHT : Scaling.NONE)
+                .setCharsetName((String) charsetComboBox.getSelectedItem());
     }
 
     private void initProcessingTab() {
         processingProgressBar.setString("");
         processingProgressBar.setStringPainted(true);
 
-        processingRunButton.addActionListener(e -> new Thread(this).start());
+        processingJobList.setModel(jobs);
+        processingJobList.setCellRenderer(jobRenderer());
+
+        processingRunButton.addActionListener(e -> queueJobs());
+        processingCancelButton.addActionListener(e -> cancelJobs());
     }
 
-    private char[] toArray(String str) {
-        char[] chars = new char[str.length()];
-        str.getChars(0, str.length(), chars, 0);
-        return chars;
+    //Every job is drawn as a progress bar labeled with its image and state
+    private static ListCellRenderer<JobQueue.Job> jobRenderer() {
+        JProgressBar bar = new JProgressBar();
+        bar.setStringPainted(true);
+        return (list, job, index, selected, focused) -> {
+            bar.setString(job.toString());
+            bar.setValue(job.getState() == JobQueue.State.DONE ? 100 : job.getTotal() > 0 ? (int) (job.getDone() * 100 / job.getTotal()) : 0);
+            bar.setBorder(selected ? BorderFactory.createLineBorder(list.getSelectionBackground(), 2) : BorderFactory.createEmptyBorder(2, 2, 2, 2));
+            return bar;
+        };
     }
 
-    @Override
-    public void run() {
-        //Check if image is selected
-        File imageFile = new File(fileImagePathTextField.getText());
-        if (!imageFile.exists()) {
+    //Queues one job per selected image with a snapshot of the current settings
+    private void queueJobs() {
+        //Check if images are selected
+        List<File> imageFiles = imageFiles();
+        if (imageFiles.isEmpty()) {
             errWindow("Select image file");
             return;
         }
+        for (File imageFile : imageFiles) {
+            if (!imageFile.exists()) {
+                errWindow("Image file not found: " + imageFile);
+                return;
+            }
+        }
 
         //Check if destination is selected
         File destinationFile = new File(fileDestinationPathTextField.getText());
@@ -159,117 +250,51 @@ public class TabbedFrame extends JFrame implements Runnable {
             return;
         }
 
-        long startTime = System.nanoTime();
-        processingProgressBar.setValue(0);
-
-        //Loading Image
-        BufferedImage rawImg;
-        try {
-            rawImg = ImageIO.read(imageFile);
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            errWindow("Could not read image file", ex);
-            return;
-        }
-
-        //Calculating scale if needed
-        BufferedImage img;
-        if (!scalingNoneRadioButton.isSelected()) {
-            Font font = new Font((String) scalingFontsComboBox.getSelectedItem(), Font.PLAIN, 100);
-            Rectangle2D bounds = font.getStringBounds("@", new FontRenderContext(new AffineTransform(), false, false));
-            double scale = ((bounds.getHeight() / bounds.getWidth()) * (scalingWidthRadioButton.isSelected() ? 1 : 0)) + ((bounds.getWidth() / bounds.getHeight()) * (scalingHeightRadioButton.isSelected() ? 1 : 0));
-
-            //Scaling the image
-            img = new BufferedImage((int) (rawImg.getWidth() * (scalingWidthRadioButton.isSelected() ? scale : 1)), (int) (rawImg.getHeight() * (scalingHeightRadioButton.isSelected() ? scale : 1)),
-                    BufferedImage.TYPE_INT_ARGB);
-            AffineTransform at = AffineTransform.getScaleInstance(scalingWidthRadioButton.isSelected() ? scale : 1, scalingHeightRadioButton.isSelected() ? scale : 1);
-            AffineTransformOp ato = new AffineTransformOp(at, AffineTransformOp.TYPE_BICUBIC);
-            img = ato.filter(rawImg, img);
-        } else {
-            img = rawImg;
-        }
+        Settings settings = settings().setDestination(destinationFile);
+        for (File imageFile : imageFiles)
+            jobs.addElement(jobQueue.submit(imageFile, settings));
+        updateProcessingProgress();
+    }
 
-        // Transforming RGB to Brightness and appending a corresponding Character
-        StringBuilder sb = new StringBuilder();
-        int imgWidth = img.getWidth();
-        int imgHeight = img.getHeight();
-        double pixelSum = imgWidth * imgHeight;
-        for (int y = 0; y < imgHeight; y++) {
-            for (int x = 0; x < imgWidth; x++) {
-                Color color = new Color(img.getRGB(x, y));
-                double brightness = ((0.21d * color.getRed()) + (0.72d * color.getGreen())
-                        + (0.07d * color.getBlue()));
-                char[] charset = charsets.get((String) charsetComboBox.getSelectedItem());
-                double index = brightness / 255 * (charset.length - 1);
-                char chr = charset[(int) Math.round(index)];
-                sb.append(chr);
-
-                double percent = (double) (x + y * imgWidth) / pixelSum * 100d;
-                processingProgressBar.setString(String.format("x:%s y:%s char:%s", x, y, chr));
-                processingProgressBar.setValue((int) Math.round(percent));
-            }
-            sb.append("\n");
-        }
+    //Cancels the selected jobs, or all of them if none is selected
+    private void cancelJobs() {
+        List<JobQueue.Job> selected = processingJobList.getSelectedValuesList();
+        if (selected.isEmpty())
+            selected = Collections.list(jobs.elements());
+        selected.forEach(JobQueue.Job::cancel);
+    }
 
-        // Creating new TXT file
-        File newFile = new File(destinationFile.getAbsolutePath().concat("/").concat(imageFile.getName()).concat(".txt"));
-        if (!newFile.exists()) {
-            try {
-                boolean rep = newFile.createNewFile();
-                if (!rep) {
-                    errWindow("Could not create new file");
-                    return;
-                }
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                errWindow("Could not create new file", ex);
-                return;
+    private void jobsChanged() {
+        int finished = 0;
+        for (int i = 0; i < jobs.size(); i++)
+            if (jobs.get(i).isFinished())
+                finished++;
+        for (int i = 0; i < jobs.size() && finished > MAX_FINISHED_JOBS; ) {
+            if (jobs.get(i).isFinished()) {
+                jobs.remove(i);
+                droppedJobs++;
+                finished--;
+            } else {
+                i++;
             }
         }
+        jobs.changed();
+        updateProcessingProgress();
+    }
 
-        //Appending processing-specifications to StringBuilder
-        sb.append("\n<INFO>\n");
-        sb.append("author: Memphis\n");
-        sb.append("instagram: @memphis_pc\n");
-        sb.append("discord: Memphis#3543\n");
-        sb.append("github: https://github.com/iNxmi\n");
-
-        sb.append("\n<SETTINGS>\n");
-        sb.append(String.format("filePathTextField: %s\n", fileImagePathTextField.getText()));
-        sb.append(String.format("destinationPathTextField: %s\n", fileDestinationPathTextField.getText()));
-        sb.append(String.format("fontNameComboBox: %s\n", scalingFontsComboBox.getSelectedItem()));
-        sb.append(String.format("widthScalingRadioButton: %s\n", scalingWidthRadioButton.isSelected()));
-        sb.append(String.format("heightScalingRadioButton: %s\n", scalingHeightRadioButton.isSelected()));
-        sb.append(String.format("noneScalingRadioButton: %s\n", scalingNoneRadioButton.isSelected()));
-
-        sb.append("\n<PROCESSING-SPECS>\n");
-        sb.append(String.format("rawImgWidth: %spx\n", rawImg.getWidth()));
-        sb.append(String.format("rawImgHeight: %spx\n", rawImg.getHeight()));
-        sb.append(String.format("scaledImgWidth: %spx\n", img.getWidth()));
-        sb.append(String.format("scaledImgHeight: %spx\n", img.getHeight()));
-        sb.append(String.format("processingTime: %sms", (System.nanoTime() - startTime) / 1000000d));
-
-        // Writing to TXT file
-        try (FileWriter fw = new FileWriter(newFile)) {
-            fw.write(sb.toString());
-            fw.flush();
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            errWindow("Could not save file", ex);
-            return;
-        }
-
-        JOptionPane.showMessageDialog(null, String.format("%s\nDone! %sms", newFile.getAbsolutePath(), (System.nanoTime() - startTime) / 1000000d));
+    private void updateProcessingProgress() {
+        int finished = droppedJobs, total = droppedJobs + jobs.size();
+        for (int i = 0; i < jobs.size(); i++)
+            if (jobs.get(i).isFinished())
+                finished++;
+        processingProgressBar.setString(String.format("%s/%s images", finished, total));
+        processingProgressBar.setValue(total == 0 ? 0 : finished * 100 / total);
     }
 
     private void errWindow(String msg) {
         JOptionPane.showMessageDialog(null, String.format("Error: %s", msg), "Error", JOptionPane.ERROR_MESSAGE);
     }
 
-    private void errWindow(String msg, Exception ex) {
-        errWindow(String.format("%s\n%s", msg, ex.getMessage()));
-    }
-
     public static void main(String[] args) {
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
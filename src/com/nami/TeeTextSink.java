@@ -0,0 +1,35 @@
+package com.nami;
+
+import java.io.IOException;
+
+//Writes every row to two sinks, the footer only to the first one
+class TeeTextSink implements TextSink {
+
+    private final TextSink sink, copy;
+
+    TeeTextSink(TextSink sink, TextSink copy) {
+        this.sink = sink;
+        this.copy = copy;
+    }
+
+    @Override
+    public void row(int y, char[] chars, int offset, int length) throws IOException {
+        sink.row(y, chars, offset, length);
+        copy.row(y, chars, offset, length);
+    }
+
+    @Override
+    public void footer(String text) throws IOException {
+        sink.footer(text);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sink.close();
+        } finally {
+            copy.close();
+        }
+    }
+
+}
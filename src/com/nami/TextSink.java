@@ -0,0 +1,11 @@
+package com.nami;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+//Writes char art rows followed by a footer to a file
+public interface TextSink extends RowSink, Closeable {
+
+    void footer(String text) throws IOException;
+
+}
@@ -0,0 +1,56 @@
+package com.nami;
+
+import java.io.IOException;
+
+//Counts the time spent writing rows as the write stage, colored rows are forwarded only if the sink takes them
+class TimedTextSink implements TextSink, ColorRowSink {
+
+    private final TextSink sink;
+    private final StageMetrics metrics;
+
+    TimedTextSink(TextSink sink, StageMetrics metrics) {
+        this.sink = sink;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void row(int y, char[] chars, int offset, int length) throws IOException {
+        StageMetrics.Span span = metrics.start(Stage.WRITE);
+        try {
+            sink.row(y, chars, offset, length);
+        } finally {
+            span.end();
+        }
+    }
+
+    @Override
+    public void row(int y, char[] chars, int[] rgb, int offset, int length) throws IOException {
+        if (!(sink instanceof ColorRowSink)) {
+            row(y, chars, offset, length);
+            return;
+        }
+
+        StageMetrics.Span span = metrics.start(Stage.WRITE);
+        try {
+            ((ColorRowSink) sink).row(y, chars, rgb, offset, length);
+        } finally {
+            span.end();
+        }
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+        return sink.isRandomAccess();
+    }
+
+    @Override
+    public void footer(String text) throws IOException {
+        sink.footer(text);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sink.close();
+    }
+
+}